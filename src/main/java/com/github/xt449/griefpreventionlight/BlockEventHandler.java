@@ -150,9 +150,22 @@ public class BlockEventHandler implements Listener {
 		//don't track in worlds where claims are not enabled
 		if(!GriefPreventionLight.instance.claimsEnabledForWorld(placeEvent.getBlock().getWorld())) return;
 
+		//administrators in ignore claims mode can build anywhere
+		PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
+		if(playerData.ignoreClaims) return;
+
 		//make sure the player is allowed to build at the location
-		for(BlockState block : placeEvent.getReplacedBlockStates()) {
-			String noBuildReason = GriefPreventionLight.instance.allowBuild(player, block.getLocation());
+		//each claim only needs checking once, however many of the blocks it holds
+		Claim[] claims = getClaimsAt(this.dataStore, placeEvent.getBlock().getWorld(), placeEvent.getReplacedBlockStates());
+		Claim lastCheckedClaim = null;
+		for(Claim claim : claims) {
+			if(claim == null || claim == lastCheckedClaim) continue;
+			lastCheckedClaim = claim;
+
+			//cache the claim for later reference
+			playerData.lastClaim = claim;
+
+			String noBuildReason = claim.allowBuild(player);
 			if(noBuildReason != null) {
 				GriefPreventionLight.sendMessage(player, TextMode.Err, noBuildReason);
 				placeEvent.setCancelled(true);
@@ -161,6 +174,19 @@ public class BlockEventHandler implements Listener {
 		}
 	}
 
+	//resolves the claims for a list of block states in one pass, see DataStore.getClaimsAt()
+	private static Claim[] getClaimsAt(DataStore dataStore, World world, List<BlockState> blocks) {
+		int[] xs = new int[blocks.size()];
+		int[] zs = new int[blocks.size()];
+		for(int i = 0; i < xs.length; i++) {
+			BlockState block = blocks.get(i);
+			xs[i] = block.getX();
+			zs[i] = block.getZ();
+		}
+
+		return dataStore.getClaimsAt(world, xs, zs);
+	}
+
 	//when a player places a block...
 	@SuppressWarnings("null")
 	@EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
@@ -176,7 +202,7 @@ public class BlockEventHandler implements Listener {
 		if(noBuildReason != null) {
 			// Allow players with container trust to place books in lecterns
 			PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-			Claim claim = this.dataStore.getClaimAt(block.getLocation(), playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(block.getWorld(), block.getX(), block.getZ(), playerData.lastClaim);
 			if(block.getType() == Material.LECTERN && placeEvent.getBlockReplacedState().getType() == Material.LECTERN) {
 				if(claim != null) {
 					playerData.lastClaim = claim;
@@ -196,7 +222,7 @@ public class BlockEventHandler implements Listener {
 
 		//if the block is being placed within or under an existing claim
 		PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-		Claim claim = this.dataStore.getClaimAt(block.getLocation(), playerData.lastClaim);
+		Claim claim = this.dataStore.getClaimAt(block.getWorld(), block.getX(), block.getZ(), playerData.lastClaim);
 		if(claim != null) {
 			playerData.lastClaim = claim;
 
@@ -234,19 +260,39 @@ public class BlockEventHandler implements Listener {
 
 					//as long as the automatic claim overlaps another existing claim, shrink it
 					//note that since the player had permission to place the chest, at the very least, the automatic claim will include the chest
+					//every claim which could conflict is found once for the largest radius, so each smaller radius only rechecks those
+					List<Claim> nearbyClaims = this.dataStore.findOverlapping(block.getWorld(),
+							new Coordinate(block.getX() - radius, block.getZ() - radius),
+							new Coordinate(block.getX() + radius, block.getZ() + radius));
 					CreateClaimResult result = null;
 					while(radius >= GriefPreventionLight.instance.config_claims_automaticClaimsForNewPlayersRadiusMin) {
 						int area = (radius * 2 + 1) * (radius * 2 + 1);
 						if(playerData.getRemainingClaimBlocks() >= area) {
-							result = this.dataStore.createClaim(
-									block.getWorld(),
-									block.getX() - radius, block.getX() + radius,
-									block.getZ() - radius, block.getZ() + radius,
-									player.getUniqueId(),
-									null, null,
-									player);
-
-							if(result.succeeded) break;
+							Coordinate lesserCorner = new Coordinate(block.getX() - radius, block.getZ() - radius);
+							Coordinate greaterCorner = new Coordinate(block.getX() + radius, block.getZ() + radius);
+							Claim conflictingClaim = null;
+							for(Claim nearbyClaim : nearbyClaims) {
+								if(nearbyClaim.overlaps(lesserCorner, greaterCorner)) {
+									conflictingClaim = nearbyClaim;
+									break;
+								}
+							}
+
+							if(conflictingClaim != null) {
+								result = new CreateClaimResult();
+								result.succeeded = false;
+								result.claim = conflictingClaim;
+							} else {
+								result = this.dataStore.createClaim(
+										block.getWorld(),
+										block.getX() - radius, block.getX() + radius,
+										block.getZ() - radius, block.getZ() + radius,
+										player.getUniqueId(),
+										null, null,
+										player);
+
+								if(result.succeeded) break;
+							}
 						}
 
 						radius--;
@@ -275,7 +321,7 @@ public class BlockEventHandler implements Listener {
 			}
 
 			//check to see if this chest is in a claim, and warn when it isn't
-			if(GriefPreventionLight.instance.config_claims_preventTheft && this.dataStore.getClaimAt(block.getLocation(), playerData.lastClaim) == null) {
+			if(GriefPreventionLight.instance.config_claims_preventTheft && this.dataStore.getClaimAt(block.getWorld(), block.getX(), block.getZ(), playerData.lastClaim) == null) {
 				GriefPreventionLight.sendMessage(player, TextMode.Warn, Messages.UnprotectedChestWarning);
 			}
 		}
@@ -374,7 +420,7 @@ public class BlockEventHandler implements Listener {
 		}
 
 		Block pistonBlock = event.getBlock();
-		Claim pistonClaim = this.dataStore.getClaimAt(pistonBlock.getLocation(), null);
+		Claim pistonClaim = this.dataStore.getClaimAt(pistonBlock.getWorld(), pistonBlock.getX(), pistonBlock.getZ(), null);
 
 		// A claim is required, but the piston is not inside a claim.
 		if(pistonClaim == null && pistonMode == PistonMode.CLAIMS_ONLY) {
@@ -382,11 +428,15 @@ public class BlockEventHandler implements Listener {
 			return;
 		}
 
+		// Ownership comes from top level claims, subdivisions don't have owners of their own.
+		Claim pistonTopClaim = (pistonClaim != null && pistonClaim.parent != null) ? pistonClaim.parent : pistonClaim;
+
 		// If no blocks are moving, quickly check if another claim's boundaries are violated.
 		if(blocks.isEmpty()) {
 			Block invadedBlock = pistonBlock.getRelative(direction);
-			Claim invadedClaim = this.dataStore.getClaimAt(invadedBlock.getLocation(), pistonClaim);
-			if(invadedClaim != null && (pistonClaim == null || !Objects.equals(pistonClaim.ownerID, invadedClaim.ownerID))) {
+			Claim invadedClaim = this.dataStore.getClaimAt(invadedBlock.getWorld(), invadedBlock.getX(), invadedBlock.getZ(), pistonClaim);
+			if(invadedClaim != null && invadedClaim.parent != null) invadedClaim = invadedClaim.parent;
+			if(invadedClaim != null && (pistonTopClaim == null || !Objects.equals(pistonTopClaim.ownerID, invadedClaim.ownerID))) {
 				event.setCancelled(true);
 			}
 
@@ -439,27 +489,17 @@ public class BlockEventHandler implements Listener {
 
 		// Fast mode: Use the intersection of a cuboid containing all blocks instead of individual locations.
 		if(pistonMode == PistonMode.EVERYWHERE_SIMPLE) {
-			ArrayList<Claim> intersectable = new ArrayList<>();
-			int chunkXMax = maxX >> 4;
-			int chunkZMax = maxZ >> 4;
-
-			for(int chunkX = minX >> 4; chunkX <= chunkXMax; ++chunkX) {
-				for(int chunkZ = minZ >> 4; chunkZ <= chunkZMax; ++chunkZ) {
-					ArrayList<Claim> chunkClaims = dataStore.chunksToClaimsMap.get(DataStore.getChunkHash(chunkX, chunkZ));
-					if(chunkClaims != null)
-						intersectable.addAll(chunkClaims);
-				}
-			}
-
-			for(Claim claim : intersectable) {
-				if(claim == pistonClaim) continue;
+			// Nothing below the world can be claimed.
+			if(maxY < 0)
+				return;
 
-				// Ensure claim intersects with bounding box.
-				if(maxY < 0 || minX > claim.greaterBoundaryCorner.getX() || maxX < claim.lesserBoundaryCorner.getX() || minZ > claim.greaterBoundaryCorner.getZ() || maxZ < claim.lesserBoundaryCorner.getZ())
-					continue;
+			// Only claims which intersect with the bounding box are returned.
+			for(Claim claim : dataStore.getClaimsInRegion(pistonBlock.getWorld(), minX, minZ, maxX, maxZ)) {
+				if(claim.parent != null) claim = claim.parent;
+				if(claim == pistonTopClaim) continue;
 
 				// If owners are different, cancel.
-				if(pistonClaim == null || !Objects.equals(pistonClaim.ownerID, claim.ownerID)) {
+				if(pistonTopClaim == null || !Objects.equals(pistonTopClaim.ownerID, claim.ownerID)) {
 					event.setCancelled(true);
 					return;
 				}
@@ -469,7 +509,6 @@ public class BlockEventHandler implements Listener {
 		}
 
 		// Precise mode: Each block must be considered individually.
-		Claim lastClaim = pistonClaim;
 		HashSet<Block> checkBlocks = new HashSet<>(blocks);
 
 		// Add all blocks that will be occupied after the shift.
@@ -477,30 +516,15 @@ public class BlockEventHandler implements Listener {
 			if(block.getPistonMoveReaction() != PistonMoveReaction.BREAK)
 				checkBlocks.add(block.getRelative(direction));
 
-		for(Block block : checkBlocks) {
-			// Reimplement DataStore#getClaimAt to ignore subclaims to maximize performance.
-			Location location = block.getLocation();
-			Claim claim = null;
-			if(lastClaim != null && lastClaim.inDataStore && lastClaim.contains(location, true))
-				claim = lastClaim;
-			else {
-				ArrayList<Claim> chunkClaims = dataStore.chunksToClaimsMap.get(DataStore.getChunkHash(location));
-				if(chunkClaims != null) {
-					for(Claim chunkClaim : chunkClaims) {
-						if(chunkClaim.contains(location, true)) {
-							claim = chunkClaim;
-							break;
-						}
-					}
-				}
-			}
-
+		// Resolve every block's claim in one pass, chunk by chunk.
+		Claim[] blockClaims = dataStore.getClaimsAt(pistonBlock.getWorld(), new ArrayList<>(checkBlocks));
+		for(Claim claim : blockClaims) {
 			if(claim == null) continue;
 
-			lastClaim = claim;
+			if(claim.parent != null) claim = claim.parent;
 
 			// If pushing this block will change ownership, cancel the event and take away the piston (for performance reasons).
-			if(pistonClaim == null || !Objects.equals(pistonClaim.ownerID, claim.ownerID)) {
+			if(pistonTopClaim == null || !Objects.equals(pistonTopClaim.ownerID, claim.ownerID)) {
 				event.setCancelled(true);
 				pistonBlock.getWorld().dropItem(pistonBlock.getLocation(), new ItemStack(event.isSticky() ? Material.STICKY_PISTON : Material.PISTON));
 				pistonBlock.setType(Material.AIR);
@@ -651,15 +675,15 @@ public class BlockEventHandler implements Listener {
 
 		//where to?
 		Block toBlock = spreadEvent.getToBlock();
-		Location toLocation = toBlock.getLocation();
-		Claim toClaim = this.dataStore.getClaimAt(toLocation, lastSpreadClaim);
+		Claim toClaim = this.dataStore.getClaimAt(toBlock.getWorld(), toBlock.getX(), toBlock.getZ(), lastSpreadClaim);
 
 		//if into a land claim, it must be from the same land claim
 		if(toClaim != null) {
 			this.lastSpreadClaim = toClaim;
-			if(!toClaim.contains(spreadEvent.getBlock().getLocation(), true)) {
+			Block fromBlock = spreadEvent.getBlock();
+			if(!toClaim.contains(fromBlock.getX(), fromBlock.getZ(), true)) {
 				//exception: from parent into subdivision
-				if(toClaim.parent == null || !toClaim.parent.contains(spreadEvent.getBlock().getLocation(), false)) {
+				if(toClaim.parent == null || !toClaim.parent.contains(fromBlock.getX(), fromBlock.getZ(), false)) {
 					spreadEvent.setCancelled(true);
 				}
 			}
@@ -677,7 +701,7 @@ public class BlockEventHandler implements Listener {
 
 		Block block = event.getHitBlock();
 
-		Claim claim = dataStore.getClaimAt(block.getLocation(), null);
+		Claim claim = dataStore.getClaimAt(block.getWorld(), block.getX(), block.getZ(), null);
 		if(claim == null)
 			return;
 
@@ -716,8 +740,8 @@ public class BlockEventHandler implements Listener {
 
 		//to where?
 		Block toBlock = fromBlock.getRelative(dispenser.getFacing());
-		Claim fromClaim = this.dataStore.getClaimAt(fromBlock.getLocation(), null);
-		Claim toClaim = this.dataStore.getClaimAt(toBlock.getLocation(), fromClaim);
+		Claim fromClaim = this.dataStore.getClaimAt(fromBlock.getWorld(), fromBlock.getX(), fromBlock.getZ(), null);
+		Claim toClaim = this.dataStore.getClaimAt(toBlock.getWorld(), toBlock.getX(), toBlock.getZ(), fromClaim);
 
 		//wilderness to wilderness is OK
 		if(fromClaim == null && toClaim == null) return;
@@ -753,16 +777,16 @@ public class BlockEventHandler implements Listener {
 			rootOwnerName = rootClaim.getOwnerName();
 		}
 
-		//for each block growing
-		for(int i = 0; i < growEvent.getBlocks().size(); i++) {
-			BlockState block = growEvent.getBlocks().get(i);
-			Claim blockClaim = this.dataStore.getClaimAt(block.getLocation(), rootClaim);
+		//for each block growing, last to first so removing one doesn't shift the ones still to check out of line with their claims
+		Claim[] blockClaims = getClaimsAt(this.dataStore, growEvent.getWorld(), growEvent.getBlocks());
+		for(int i = growEvent.getBlocks().size() - 1; i >= 0; i--) {
+			Claim blockClaim = blockClaims[i];
 
 			//if it's growing into a claim
 			if(blockClaim != null) {
 				//if there's no owner for the new tree, or the owner for the new tree is different from the owner of the claim
 				if(rootOwnerName == null || !rootOwnerName.equals(blockClaim.getOwnerName())) {
-					growEvent.getBlocks().remove(i--);
+					growEvent.getBlocks().remove(i);
 				}
 			}
 		}
@@ -24,6 +24,7 @@ import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 //represents a player claim
 //creating an instance doesn't make an effective claim
@@ -69,6 +70,10 @@ public class Claim {
 	//note subdivisions themselves never have children
 	public ArrayList<Claim> children = new ArrayList<>();
 
+	//lazily built grid over the children, swapped for a fresh unbuilt one whenever subdivisions are added, removed or resized
+	//a grid is only published if nothing was invalidated while it was built, so a lookup racing a write can't leave a stale one behind
+	private final AtomicReference<SubdivisionIndex> subdivisionIndex = new AtomicReference<>(new SubdivisionIndex());
+
 	//whether or not this is an administrative claim
 	//administrative claims are created and maintained by players with the griefprevention.adminclaims permission.
 	public boolean isAdminClaim() {
@@ -82,6 +87,26 @@ public class Claim {
 		return this.id;
 	}
 
+	//gets the subdivisions which might contain a block position, or null if there can't be any
+	//the returned array must not be modified
+	Claim[] getSubdivisionsAt(int x, int z) {
+		if(this.children.isEmpty()) return null;
+
+		SubdivisionIndex index = this.subdivisionIndex.get();
+		if(index.childCount != this.children.size()) {
+			SubdivisionIndex builtIndex = new SubdivisionIndex(this.children);
+			this.subdivisionIndex.compareAndSet(index, builtIndex);
+			index = builtIndex;
+		}
+
+		return index.get(x, z);
+	}
+
+	//must be called whenever this claim's subdivisions are added, removed or resized
+	void invalidateSubdivisionIndex() {
+		this.subdivisionIndex.set(new SubdivisionIndex());
+	}
+
 	//main constructor.  note that only creating a claim instance does nothing - a claim must be added to the data store to be effective
 	Claim(World world, Coordinate lesserBoundaryCorner, Coordinate greaterBoundaryCorner, UUID ownerID, List<String> builderIDs, List<String> containerIDs, List<String> accessorIDs, List<String> managerIDs, boolean inheritNothing, Long id) {
 		//modification date
@@ -128,8 +153,8 @@ public class Claim {
 	public Claim(Claim claim) {
 		this.modifiedDate = claim.modifiedDate;
 		this.world = claim.world;
-		this.lesserBoundaryCorner = claim.greaterBoundaryCorner;
-		this.greaterBoundaryCorner = claim.greaterBoundaryCorner;
+		this.lesserBoundaryCorner = new Coordinate(claim.lesserBoundaryCorner.x, claim.lesserBoundaryCorner.z);
+		this.greaterBoundaryCorner = new Coordinate(claim.greaterBoundaryCorner.x, claim.greaterBoundaryCorner.z);
 		this.id = claim.id;
 		this.ownerID = claim.ownerID;
 		this.managers = new ArrayList<>(claim.managers);
@@ -457,15 +482,19 @@ public class Claim {
 		//not in the same world implies false
 		if(!location.getWorld().equals(this.world)) return false;
 
-		double x = location.getX();
-		double z = location.getZ();
+		//a location is inside exactly when the block it's in is inside
+		return this.contains(location.getBlockX(), location.getBlockZ(), excludeSubdivisions);
+	}
 
+	//same as above for a block position, without building a location
+	//the world isn't checked here, callers must make sure the position is in this claim's world
+	public boolean contains(int x, int z, boolean excludeSubdivisions) {
 		//main check
 		boolean inClaim =
-				x >= this.lesserBoundaryCorner.getX() &&
-						x < this.greaterBoundaryCorner.getX() + 1 &&
-						z >= this.lesserBoundaryCorner.getZ() &&
-						z < this.greaterBoundaryCorner.getZ() + 1;
+				x >= this.lesserBoundaryCorner.x &&
+						x <= this.greaterBoundaryCorner.x &&
+						z >= this.lesserBoundaryCorner.z &&
+						z <= this.greaterBoundaryCorner.z;
 
 		if(!inClaim) return false;
 
@@ -474,16 +503,19 @@ public class Claim {
 		//NOTE: if a player creates subdivions then resizes the parent claim, it's possible that
 		//a subdivision can reach outside of its parent's boundaries.  so this check is important!
 		if(this.parent != null) {
-			return this.parent.contains(location, false);
+			return this.parent.contains(x, z, false);
 		}
 
 		//code to exclude subdivisions in this check
 		else if(excludeSubdivisions) {
-			//search all subdivisions to see if the location is in any of them
-			for(Claim child : this.children) {
-				//if we find such a subdivision, return false
-				if(child.contains(location, true)) {
-					return false;
+			//search the subdivisions near the position to see if it's in any of them
+			Claim[] subdivisions = this.getSubdivisionsAt(x, z);
+			if(subdivisions != null) {
+				for(Claim child : subdivisions) {
+					//if we find such a subdivision, return false
+					if(child.contains(x, z, true)) {
+						return false;
+					}
 				}
 			}
 		}
@@ -538,11 +570,15 @@ public class Claim {
 
 		if(!this.world.equals(otherClaim.world)) return false;
 
-		return !(this.greaterBoundaryCorner.getX() < otherClaim.lesserBoundaryCorner.getX() ||
-				this.lesserBoundaryCorner.getX() > otherClaim.greaterBoundaryCorner.getX() ||
-				this.greaterBoundaryCorner.getZ() < otherClaim.lesserBoundaryCorner.getZ() ||
-				this.lesserBoundaryCorner.getZ() > otherClaim.greaterBoundaryCorner.getZ());
+		return this.overlaps(otherClaim.lesserBoundaryCorner, otherClaim.greaterBoundaryCorner);
+	}
 
+	//whether or not this claim overlaps a rectangle, ignoring worlds
+	boolean overlaps(Coordinate lesserCorner, Coordinate greaterCorner) {
+		return !(this.greaterBoundaryCorner.getX() < lesserCorner.getX() ||
+				this.lesserBoundaryCorner.getX() > greaterCorner.getX() ||
+				this.greaterBoundaryCorner.getZ() < lesserCorner.getZ() ||
+				this.lesserBoundaryCorner.getZ() > greaterCorner.getZ());
 	}
 
 	public ArrayList<Chunk> getChunks() {
@@ -560,8 +596,4 @@ public class Claim {
 
 		return chunks;
 	}
-
-	ArrayList<Long> getChunkHashes() {
-		return DataStore.getChunkHashes(this);
-	}
 }
@@ -0,0 +1,270 @@
+package com.github.xt449.griefpreventionlight;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+//dump of every claim written on a clean shutdown, so the next start can skip reading and parsing the real claim storage
+//it's only a cache, the flat file store decides whether it still matches its files (see FlatFileDataStore.loadClaimColumnFile())
+//the data is laid out column by column, one array per field, and read back with one bulk read into a heap buffer
+//not a memory mapping, a file which is still mapped can't be replaced on Windows, so the next shutdown couldn't write a new dump
+//
+//layout, numbers are big endian:
+//  header:   int magic "GPCC", int format version, long token, long storage fingerprint (3 longs),
+//            int world count, int claim count, int string count, int trust entry count
+//  worlds:   UUID (2 longs) per world
+//  strings:  UTF string per distinct trust list entry
+//  columns:  long id[], long parent id[] (-1 for top level), int world[],
+//            int lesser x[], int lesser z[], int greater x[], int greater z[],
+//            byte flags[] (1 = has owner, 2 = inherit nothing), long owner most[], long owner least[], long modified[],
+//            int first trust entry[] (claim count + 1 offsets)
+//  trust:    int string[], byte level[] (0 build, 1 containers, 2 access, 3 manager)
+//top level claims come before their subdivisions
+class ClaimColumnFile {
+	private static final int MAGIC = 0x47504343;
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte FLAG_HAS_OWNER = 1;
+	private static final byte FLAG_INHERIT_NOTHING = 2;
+
+	private static final byte LEVEL_BUILD = 0;
+	private static final byte LEVEL_CONTAINERS = 1;
+	private static final byte LEVEL_ACCESS = 2;
+	private static final byte LEVEL_MANAGER = 3;
+
+	//what a dump was read back as
+	static final class Contents {
+		final long token;
+		final long[] fingerprint;
+
+		//top level claims first, subdivisions after with their parents set, or null if a world couldn't be found
+		final List<Claim> claims;
+
+		Contents(long token, long[] fingerprint, List<Claim> claims) {
+			this.token = token;
+			this.fingerprint = fingerprint;
+			this.claims = claims;
+		}
+	}
+
+	//writes every claim and its subdivisions, replacing any earlier dump only once the new one is complete
+	static void write(File file, long token, long[] fingerprint, List<Claim> topLevelClaims) throws IOException {
+		ArrayList<Claim> claims = new ArrayList<>();
+		claims.addAll(topLevelClaims);
+		for(Claim claim : topLevelClaims) {
+			claims.addAll(claim.children);
+		}
+
+		//worlds and strings are written once each and referred to by index
+		LinkedHashMap<UUID, Integer> worldIndexes = new LinkedHashMap<>();
+		LinkedHashMap<String, Integer> stringIndexes = new LinkedHashMap<>();
+		ArrayList<int[]> trustEntries = new ArrayList<>();
+		int[] firstTrustEntry = new int[claims.size() + 1];
+		for(int i = 0; i < claims.size(); i++) {
+			Claim claim = claims.get(i);
+			worldIndexes.putIfAbsent(claim.world.getUID(), worldIndexes.size());
+
+			ArrayList<String> builders = new ArrayList<>();
+			ArrayList<String> containers = new ArrayList<>();
+			ArrayList<String> accessors = new ArrayList<>();
+			ArrayList<String> managers = new ArrayList<>();
+			claim.getPermissions(builders, containers, accessors, managers);
+
+			firstTrustEntry[i] = trustEntries.size();
+			addTrustEntries(trustEntries, stringIndexes, builders, LEVEL_BUILD);
+			addTrustEntries(trustEntries, stringIndexes, containers, LEVEL_CONTAINERS);
+			addTrustEntries(trustEntries, stringIndexes, accessors, LEVEL_ACCESS);
+			addTrustEntries(trustEntries, stringIndexes, managers, LEVEL_MANAGER);
+		}
+		firstTrustEntry[claims.size()] = trustEntries.size();
+
+		File tempFile = new File(file.getPath() + ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(token);
+			for(long value : fingerprint) {
+				out.writeLong(value);
+			}
+			out.writeInt(worldIndexes.size());
+			out.writeInt(claims.size());
+			out.writeInt(stringIndexes.size());
+			out.writeInt(trustEntries.size());
+
+			for(UUID worldID : worldIndexes.keySet()) {
+				out.writeLong(worldID.getMostSignificantBits());
+				out.writeLong(worldID.getLeastSignificantBits());
+			}
+
+			for(String string : stringIndexes.keySet()) {
+				out.writeUTF(string);
+			}
+
+			for(Claim claim : claims) out.writeLong(claim.id);
+			for(Claim claim : claims) out.writeLong(claim.parent != null ? claim.parent.id : -1L);
+			for(Claim claim : claims) out.writeInt(worldIndexes.get(claim.world.getUID()));
+			for(Claim claim : claims) out.writeInt(claim.lesserBoundaryCorner.x);
+			for(Claim claim : claims) out.writeInt(claim.lesserBoundaryCorner.z);
+			for(Claim claim : claims) out.writeInt(claim.greaterBoundaryCorner.x);
+			for(Claim claim : claims) out.writeInt(claim.greaterBoundaryCorner.z);
+			for(Claim claim : claims) {
+				out.writeByte((claim.ownerID != null ? FLAG_HAS_OWNER : 0) | (claim.getSubclaimRestrictions() ? FLAG_INHERIT_NOTHING : 0));
+			}
+			for(Claim claim : claims) out.writeLong(claim.ownerID != null ? claim.ownerID.getMostSignificantBits() : 0L);
+			for(Claim claim : claims) out.writeLong(claim.ownerID != null ? claim.ownerID.getLeastSignificantBits() : 0L);
+			for(Claim claim : claims) out.writeLong(claim.modifiedDate != null ? claim.modifiedDate.getTime() : 0L);
+			for(int offset : firstTrustEntry) out.writeInt(offset);
+
+			for(int[] entry : trustEntries) out.writeInt(entry[0]);
+			for(int[] entry : trustEntries) out.writeByte(entry[1]);
+		}
+
+		try {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void addTrustEntries(ArrayList<int[]> trustEntries, LinkedHashMap<String, Integer> stringIndexes, List<String> ids, byte level) {
+		for(String id : ids) {
+			Integer index = stringIndexes.get(id);
+			if(index == null) {
+				index = stringIndexes.size();
+				stringIndexes.put(id, index);
+			}
+
+			trustEntries.add(new int[]{index, level});
+		}
+	}
+
+	//reads a dump back, or returns null if there's no usable dump
+	//the claims aren't added to anything, that's up to the caller once it's decided the dump is current
+	static Contents read(File file) throws IOException {
+		if(!file.exists()) return null;
+
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) return null;
+
+			buffer = ByteBuffer.allocate((int) size);
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			}
+			buffer.flip();
+		}
+
+		if(buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return null;
+
+		long token = buffer.getLong();
+		long[] fingerprint = {buffer.getLong(), buffer.getLong(), buffer.getLong()};
+		int worldCount = buffer.getInt();
+		int claimCount = buffer.getInt();
+		int stringCount = buffer.getInt();
+		int trustEntryCount = buffer.getInt();
+
+		World[] worlds = new World[worldCount];
+		boolean missingWorld = false;
+		for(int i = 0; i < worldCount; i++) {
+			worlds[i] = Bukkit.getServer().getWorld(new UUID(buffer.getLong(), buffer.getLong()));
+			missingWorld |= worlds[i] == null;
+		}
+
+		//a full load would have dealt with claims in missing worlds, so don't take any shortcuts then
+		if(missingWorld) return new Contents(token, fingerprint, null);
+
+		String[] strings = new String[stringCount];
+		for(int i = 0; i < stringCount; i++) {
+			strings[i] = readUTF(buffer);
+		}
+
+		long[] ids = readLongs(buffer, claimCount);
+		long[] parentIDs = readLongs(buffer, claimCount);
+		int[] worldIndexes = readInts(buffer, claimCount);
+		int[] lesserXs = readInts(buffer, claimCount);
+		int[] lesserZs = readInts(buffer, claimCount);
+		int[] greaterXs = readInts(buffer, claimCount);
+		int[] greaterZs = readInts(buffer, claimCount);
+		byte[] flags = new byte[claimCount];
+		buffer.get(flags);
+		long[] ownerMosts = readLongs(buffer, claimCount);
+		long[] ownerLeasts = readLongs(buffer, claimCount);
+		long[] modifiedDates = readLongs(buffer, claimCount);
+		int[] firstTrustEntry = readInts(buffer, claimCount + 1);
+		int[] trustStrings = readInts(buffer, trustEntryCount);
+		byte[] trustLevels = new byte[trustEntryCount];
+		buffer.get(trustLevels);
+
+		ArrayList<Claim> claims = new ArrayList<>(claimCount);
+		HashMap<Long, Claim> claimsByID = new HashMap<>();
+		for(int i = 0; i < claimCount; i++) {
+			ArrayList<String> builders = new ArrayList<>();
+			ArrayList<String> containers = new ArrayList<>();
+			ArrayList<String> accessors = new ArrayList<>();
+			ArrayList<String> managers = new ArrayList<>();
+			for(int entry = firstTrustEntry[i]; entry < firstTrustEntry[i + 1]; entry++) {
+				String id = strings[trustStrings[entry]];
+				switch(trustLevels[entry]) {
+					case LEVEL_BUILD:
+						builders.add(id);
+						break;
+					case LEVEL_CONTAINERS:
+						containers.add(id);
+						break;
+					case LEVEL_ACCESS:
+						accessors.add(id);
+						break;
+					default:
+						managers.add(id);
+				}
+			}
+
+			UUID ownerID = (flags[i] & FLAG_HAS_OWNER) != 0 ? new UUID(ownerMosts[i], ownerLeasts[i]) : null;
+			boolean inheritNothing = (flags[i] & FLAG_INHERIT_NOTHING) != 0;
+			Claim claim = new Claim(worlds[worldIndexes[i]], new Coordinate(lesserXs[i], lesserZs[i]), new Coordinate(greaterXs[i], greaterZs[i]), ownerID, builders, containers, accessors, managers, inheritNothing, ids[i]);
+			claim.modifiedDate = new Date(modifiedDates[i]);
+
+			if(parentIDs[i] != -1) {
+				claim.parent = claimsByID.get(parentIDs[i]);
+				if(claim.parent == null) throw new IOException("Subdivision " + ids[i] + " comes before its parent " + parentIDs[i]);
+			}
+
+			claimsByID.put(ids[i], claim);
+			claims.add(claim);
+		}
+
+		return new Contents(token, fingerprint, claims);
+	}
+
+	private static long[] readLongs(ByteBuffer buffer, int count) {
+		long[] values = new long[count];
+		buffer.asLongBuffer().get(values);
+		buffer.position(buffer.position() + count * 8);
+		return values;
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int count) {
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + count * 4);
+		return values;
+	}
+
+	//reads a string written by DataOutputStream.writeUTF
+	private static String readUTF(ByteBuffer buffer) throws IOException {
+		int length = buffer.getShort() & 0xFFFF;
+		byte[] bytes = new byte[length + 2];
+		bytes[0] = (byte) (length >>> 8);
+		bytes[1] = (byte) length;
+		buffer.get(bytes, 2, length);
+		return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+	}
+}
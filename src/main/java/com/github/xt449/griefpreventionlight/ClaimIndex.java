@@ -0,0 +1,157 @@
+package com.github.xt449.griefpreventionlight;
+
+import org.bukkit.World;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+//spatial index for top level claims
+//claims are bucketed by world first and then by every chunk they touch,
+//so a lookup only ever sees claims from the world it's asking about
+//each chunk is also classified as empty (no bucket), fully covered by a single claim, or mixed,
+//so most lookups can be answered without testing any rectangles
+class ClaimIndex {
+	private static final class WorldIndex {
+		final LongClaimMap chunksToClaimsMap = new LongClaimMap();
+
+		//chunks where one claim covers every block column and no other claim is present
+		//the value is the chunk's bucket, which then holds just that claim
+		final LongClaimMap fullyCoveredChunksMap = new LongClaimMap();
+	}
+
+	private final ConcurrentHashMap<UUID, WorldIndex> worldToChunksMap = new ConcurrentHashMap<>();
+
+	void add(Claim claim) {
+		WorldIndex worldIndex = this.worldToChunksMap.computeIfAbsent(claim.world.getUID(), k -> new WorldIndex());
+		LongClaimMap chunksToClaimsMap = worldIndex.chunksToClaimsMap;
+
+		int lesserChunkX = claim.lesserBoundaryCorner.x >> 4;
+		int lesserChunkZ = claim.lesserBoundaryCorner.z >> 4;
+		int greaterChunkX = claim.greaterBoundaryCorner.x >> 4;
+		int greaterChunkZ = claim.greaterBoundaryCorner.z >> 4;
+
+		for(int chunkx = lesserChunkX; chunkx <= greaterChunkX; chunkx++) {
+			for(int chunkz = lesserChunkZ; chunkz <= greaterChunkZ; chunkz++) {
+				long chunkHash = DataStore.getChunkHash(chunkx, chunkz);
+				Claim[] claimsInChunk = chunksToClaimsMap.get(chunkHash);
+				Claim[] newClaimsInChunk;
+				if(claimsInChunk == null) {
+					newClaimsInChunk = new Claim[]{claim};
+				} else {
+					newClaimsInChunk = Arrays.copyOf(claimsInChunk, claimsInChunk.length + 1);
+					newClaimsInChunk[claimsInChunk.length] = claim;
+				}
+
+				chunksToClaimsMap.put(chunkHash, newClaimsInChunk);
+				updateCoverage(worldIndex, chunkHash, chunkx, chunkz, newClaimsInChunk);
+			}
+		}
+	}
+
+	void remove(Claim claim) {
+		WorldIndex worldIndex = this.worldToChunksMap.get(claim.world.getUID());
+		if(worldIndex == null) return;
+		LongClaimMap chunksToClaimsMap = worldIndex.chunksToClaimsMap;
+
+		int lesserChunkX = claim.lesserBoundaryCorner.x >> 4;
+		int lesserChunkZ = claim.lesserBoundaryCorner.z >> 4;
+		int greaterChunkX = claim.greaterBoundaryCorner.x >> 4;
+		int greaterChunkZ = claim.greaterBoundaryCorner.z >> 4;
+
+		for(int chunkx = lesserChunkX; chunkx <= greaterChunkX; chunkx++) {
+			for(int chunkz = lesserChunkZ; chunkz <= greaterChunkZ; chunkz++) {
+				long chunkHash = DataStore.getChunkHash(chunkx, chunkz);
+				Claim[] claimsInChunk = chunksToClaimsMap.get(chunkHash);
+				if(claimsInChunk == null) continue;
+
+				for(int i = 0; i < claimsInChunk.length; i++) {
+					Claim c = claimsInChunk[i];
+					if(c == claim || (claim.id != null && claim.id.equals(c.id))) {
+						Claim[] newClaimsInChunk = new Claim[claimsInChunk.length - 1];
+						System.arraycopy(claimsInChunk, 0, newClaimsInChunk, 0, i);
+						System.arraycopy(claimsInChunk, i + 1, newClaimsInChunk, i, newClaimsInChunk.length - i);
+
+						// if nothing's left, this removes the chunk's bucket
+						chunksToClaimsMap.put(chunkHash, newClaimsInChunk);
+						updateCoverage(worldIndex, chunkHash, chunkx, chunkz, newClaimsInChunk);
+						break;
+					}
+				}
+			}
+		}
+
+		if(chunksToClaimsMap.isEmpty()) {
+			this.worldToChunksMap.remove(claim.world.getUID(), worldIndex);
+		}
+	}
+
+	//reclassifies a chunk after its bucket changed
+	private static void updateCoverage(WorldIndex worldIndex, long chunkHash, int chunkx, int chunkz, Claim[] claimsInChunk) {
+		if(claimsInChunk.length == 1 && covers(claimsInChunk[0], chunkx, chunkz)) {
+			worldIndex.fullyCoveredChunksMap.put(chunkHash, claimsInChunk);
+		} else {
+			worldIndex.fullyCoveredChunksMap.remove(chunkHash);
+		}
+	}
+
+	private static boolean covers(Claim claim, int chunkx, int chunkz) {
+		return claim.lesserBoundaryCorner.x <= chunkx << 4 &&
+				claim.greaterBoundaryCorner.x >= (chunkx << 4) + 15 &&
+				claim.lesserBoundaryCorner.z <= chunkz << 4 &&
+				claim.greaterBoundaryCorner.z >= (chunkz << 4) + 15;
+	}
+
+	//gets the claims touching a chunk, or null if there aren't any
+	//the returned array must not be modified
+	Claim[] get(World world, int chunkx, int chunkz) {
+		WorldIndex worldIndex = this.worldToChunksMap.get(world.getUID());
+		if(worldIndex == null) return null;
+
+		return worldIndex.chunksToClaimsMap.get(DataStore.getChunkHash(chunkx, chunkz));
+	}
+
+	//gets the only claim in a chunk when it covers the whole chunk, otherwise null
+	//subdivisions aren't considered here, callers still have to look for those
+	Claim getCoveringClaim(World world, int chunkx, int chunkz) {
+		WorldIndex worldIndex = this.worldToChunksMap.get(world.getUID());
+		if(worldIndex == null) return null;
+
+		Claim[] claimsInChunk = worldIndex.fullyCoveredChunksMap.get(DataStore.getChunkHash(chunkx, chunkz));
+		return claimsInChunk != null ? claimsInChunk[0] : null;
+	}
+
+	//gets every claim touching a rectangle of chunks, each claim listed once
+	Set<Claim> get(World world, int lesserChunkX, int lesserChunkZ, int greaterChunkX, int greaterChunkZ) {
+		Set<Claim> claims = new LinkedHashSet<>();
+
+		WorldIndex worldIndex = this.worldToChunksMap.get(world.getUID());
+		if(worldIndex == null) return claims;
+		LongClaimMap chunksToClaimsMap = worldIndex.chunksToClaimsMap;
+
+		for(int chunkx = lesserChunkX; chunkx <= greaterChunkX; chunkx++) {
+			for(int chunkz = lesserChunkZ; chunkz <= greaterChunkZ; chunkz++) {
+				Claim[] claimsInChunk = chunksToClaimsMap.get(DataStore.getChunkHash(chunkx, chunkz));
+				if(claimsInChunk != null) {
+					Collections.addAll(claims, claimsInChunk);
+				}
+			}
+		}
+
+		return claims;
+	}
+
+	//gets the claims touching a chunk position in any world
+	//only here for callers which don't know which world they're asking about
+	ArrayList<Claim> getInAllWorlds(int chunkx, int chunkz) {
+		ArrayList<Claim> claims = new ArrayList<>();
+		long chunkHash = DataStore.getChunkHash(chunkx, chunkz);
+		for(WorldIndex worldIndex : this.worldToChunksMap.values()) {
+			Claim[] claimsInChunk = worldIndex.chunksToClaimsMap.get(chunkHash);
+			if(claimsInChunk != null) {
+				Collections.addAll(claims, claimsInChunk);
+			}
+		}
+
+		return claims;
+	}
+}
@@ -0,0 +1,50 @@
+package com.github.xt449.griefpreventionlight;
+
+import org.bukkit.World;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+//claim lookups for other plugins which are safe to call from any thread
+//everything is answered from the data store's current ClaimSnapshot, so no locks are taken and the main thread is never involved
+//lookups which only touch a bucket or two complete right away on the calling thread,
+//region queries which may cover a lot of chunks run on the common fork join pool instead
+//results are snapshot entries, not live claims, see ClaimSnapshot.Entry
+public final class ClaimQueries {
+	private final DataStore dataStore;
+
+	ClaimQueries(DataStore dataStore) {
+		this.dataStore = dataStore;
+	}
+
+	//gets the claim or subdivision at a block position, or null if there isn't one
+	public CompletableFuture<ClaimSnapshot.Entry> getClaimAtAsync(World world, int x, int z) {
+		return CompletableFuture.completedFuture(this.dataStore.getClaimSnapshot().getClaimAt(world, x, z));
+	}
+
+	//gets a claim or subdivision by ID, or null if there isn't one
+	public CompletableFuture<ClaimSnapshot.Entry> getClaimAsync(long id) {
+		return CompletableFuture.completedFuture(this.dataStore.getClaimSnapshot().getClaim(id));
+	}
+
+	//gets the top level claims owned by a player, empty for no claims
+	public CompletableFuture<List<ClaimSnapshot.Entry>> claimsOfOwnerAsync(UUID ownerID) {
+		return CompletableFuture.completedFuture(this.dataStore.getClaimSnapshot().getClaimsOwnedBy(ownerID));
+	}
+
+	//gets every top level claim overlapping a rectangle of blocks, bounds included
+	public CompletableFuture<Set<ClaimSnapshot.Entry>> claimsInRegionAsync(World world, int minX, int minZ, int maxX, int maxZ) {
+		//grab the snapshot now, so the answer reflects the claims as of this call
+		ClaimSnapshot snapshot = this.dataStore.getClaimSnapshot();
+		UUID worldID = world.getUID();
+		return CompletableFuture.supplyAsync(() -> snapshot.getClaimsInRegion(worldID, minX, minZ, maxX, maxZ));
+	}
+
+	//gets every top level claim
+	public CompletableFuture<List<ClaimSnapshot.Entry>> allClaimsAsync() {
+		ClaimSnapshot snapshot = this.dataStore.getClaimSnapshot();
+		return CompletableFuture.supplyAsync(snapshot::getClaims);
+	}
+}
@@ -0,0 +1,429 @@
+package com.github.xt449.griefpreventionlight;
+
+import org.bukkit.World;
+
+import java.util.*;
+
+//immutable copy of every claim, for reading claim data from other threads without any locking
+//the data store publishes a new snapshot after every change to its claims, see DataStore.getClaimSnapshot()
+//each snapshot is built from the one before it, copying only the shards and regions the change touched
+public final class ClaimSnapshot {
+	private static final int SHARD_COUNT = 64;
+
+	//chunk buckets are grouped into regions of 32x32 chunks, the unit which gets copied when a claim changes
+	private static final int REGION_SHIFT = 5;
+
+	static final ClaimSnapshot EMPTY = new ClaimSnapshot(0, new HashMap<>(), newShards(), newShards(), 0);
+
+	//immutable copy of one claim, with copies of its subdivisions
+	public static final class Entry {
+		public final long id;
+		public final UUID worldID;
+		public final String worldName;
+		public final int lesserX;
+		public final int lesserZ;
+		public final int greaterX;
+		public final int greaterZ;
+
+		//null for administrative claims, subdivisions have their parent's owner
+		public final UUID ownerID;
+
+		public final boolean areExplosivesAllowed;
+		public final boolean inheritNothing;
+
+		//trust lists, as in Claim.getPermissions()
+		public final List<String> builders;
+		public final List<String> containers;
+		public final List<String> accessors;
+		public final List<String> managers;
+
+		//null for top level claims
+		public final Entry parent;
+		public final List<Entry> children;
+
+		private Entry(Claim claim, Entry parent) {
+			this.id = claim.id;
+			this.worldID = claim.world.getUID();
+			this.worldName = claim.world.getName();
+			this.lesserX = claim.lesserBoundaryCorner.x;
+			this.lesserZ = claim.lesserBoundaryCorner.z;
+			this.greaterX = claim.greaterBoundaryCorner.x;
+			this.greaterZ = claim.greaterBoundaryCorner.z;
+			this.ownerID = parent != null ? parent.ownerID : claim.ownerID;
+			this.areExplosivesAllowed = claim.areExplosivesAllowed;
+			this.inheritNothing = claim.getSubclaimRestrictions();
+
+			ArrayList<String> builders = new ArrayList<>();
+			ArrayList<String> containers = new ArrayList<>();
+			ArrayList<String> accessors = new ArrayList<>();
+			ArrayList<String> managers = new ArrayList<>();
+			claim.getPermissions(builders, containers, accessors, managers);
+			this.builders = Collections.unmodifiableList(builders);
+			this.containers = Collections.unmodifiableList(containers);
+			this.accessors = Collections.unmodifiableList(accessors);
+			this.managers = Collections.unmodifiableList(managers);
+
+			this.parent = parent;
+			ArrayList<Entry> children = new ArrayList<>();
+			for(Claim child : claim.children) {
+				if(child.inDataStore && child.id != null) {
+					children.add(new Entry(child, this));
+				}
+			}
+			this.children = Collections.unmodifiableList(children);
+		}
+
+		public boolean isAdminClaim() {
+			return this.ownerID == null;
+		}
+
+		public int getArea() {
+			return (this.greaterX - this.lesserX + 1) * (this.greaterZ - this.lesserZ + 1);
+		}
+
+		//same rules as Claim.contains(), for a block position in this claim's world
+		public boolean contains(int x, int z, boolean excludeSubdivisions) {
+			if(x < this.lesserX || x > this.greaterX || z < this.lesserZ || z > this.greaterZ) return false;
+
+			//you're only in a subdivision when you're also in its parent claim
+			if(this.parent != null) {
+				return this.parent.contains(x, z, false);
+			}
+
+			if(excludeSubdivisions) {
+				for(Entry child : this.children) {
+					if(child.contains(x, z, true)) return false;
+				}
+			}
+
+			return true;
+		}
+
+		private boolean overlaps(int minX, int minZ, int maxX, int maxZ) {
+			return this.lesserX <= maxX && this.greaterX >= minX && this.lesserZ <= maxZ && this.greaterZ >= minZ;
+		}
+	}
+
+	//incremented with every published snapshot
+	public final long version;
+
+	//world ID -> region hash -> chunk hash -> top level claims touching that chunk
+	private final Map<UUID, Map<Long, Map<Long, Entry[]>>> worlds;
+
+	//claims and subdivisions by ID, sharded by ID
+	private final Map<Long, Entry>[] idShards;
+
+	//top level claims by owner, sharded by owner, admin claims aren't listed
+	private final Map<UUID, List<Entry>>[] ownerShards;
+
+	private final int claimCount;
+
+	private ClaimSnapshot(long version, Map<UUID, Map<Long, Map<Long, Entry[]>>> worlds, Map<Long, Entry>[] idShards, Map<UUID, List<Entry>>[] ownerShards, int claimCount) {
+		this.version = version;
+		this.worlds = worlds;
+		this.idShards = idShards;
+		this.ownerShards = ownerShards;
+		this.claimCount = claimCount;
+	}
+
+	//how many top level claims there are
+	public int size() {
+		return this.claimCount;
+	}
+
+	//finds a claim or subdivision by ID
+	public Entry getClaim(long id) {
+		return this.idShards[shardFor(id)].get(id);
+	}
+
+	//gets the claim at a block position, preferring subdivisions over their parent like DataStore.getClaimAt()
+	public Entry getClaimAt(World world, int x, int z) {
+		return this.getClaimAt(world.getUID(), x, z);
+	}
+
+	public Entry getClaimAt(UUID worldID, int x, int z) {
+		Map<Long, Map<Long, Entry[]>> regions = this.worlds.get(worldID);
+		if(regions == null) return null;
+
+		Map<Long, Entry[]> chunks = regions.get(regionHash(x >> 4, z >> 4));
+		if(chunks == null) return null;
+
+		Entry[] entriesInChunk = chunks.get(DataStore.getChunkHash(x >> 4, z >> 4));
+		if(entriesInChunk == null) return null;
+
+		for(Entry entry : entriesInChunk) {
+			if(entry.contains(x, z, false)) {
+				for(Entry child : entry.children) {
+					if(child.contains(x, z, false)) return child;
+				}
+
+				return entry;
+			}
+		}
+
+		return null;
+	}
+
+	//gets every top level claim overlapping a rectangle of blocks, bounds included
+	public Set<Entry> getClaimsInRegion(World world, int minX, int minZ, int maxX, int maxZ) {
+		return this.getClaimsInRegion(world.getUID(), minX, minZ, maxX, maxZ);
+	}
+
+	public Set<Entry> getClaimsInRegion(UUID worldID, int minX, int minZ, int maxX, int maxZ) {
+		Set<Entry> entries = new LinkedHashSet<>();
+
+		Map<Long, Map<Long, Entry[]>> regions = this.worlds.get(worldID);
+		if(regions == null) return entries;
+
+		int smallx = Math.min(minX, maxX);
+		int smallz = Math.min(minZ, maxZ);
+		int bigx = Math.max(minX, maxX);
+		int bigz = Math.max(minZ, maxZ);
+
+		for(int chunkx = smallx >> 4; chunkx <= bigx >> 4; chunkx++) {
+			for(int chunkz = smallz >> 4; chunkz <= bigz >> 4; chunkz++) {
+				Map<Long, Entry[]> chunks = regions.get(regionHash(chunkx, chunkz));
+				if(chunks == null) continue;
+
+				Entry[] entriesInChunk = chunks.get(DataStore.getChunkHash(chunkx, chunkz));
+				if(entriesInChunk == null) continue;
+
+				for(Entry entry : entriesInChunk) {
+					if(entry.overlaps(smallx, smallz, bigx, bigz)) {
+						entries.add(entry);
+					}
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	//gets the top level claims owned by a player
+	public List<Entry> getClaimsOwnedBy(UUID ownerID) {
+		List<Entry> entries = this.ownerShards[shardFor(ownerID)].get(ownerID);
+		return entries != null ? Collections.unmodifiableList(entries) : Collections.emptyList();
+	}
+
+	//gets every top level claim
+	public List<Entry> getClaims() {
+		ArrayList<Entry> entries = new ArrayList<>(this.claimCount);
+		for(Map<Long, Entry> shard : this.idShards) {
+			for(Entry entry : shard.values()) {
+				if(entry.parent == null) entries.add(entry);
+			}
+		}
+
+		return entries;
+	}
+
+	//builds a snapshot of all the given top level claims from scratch
+	static ClaimSnapshot build(long version, Collection<Claim> claims) {
+		Builder builder = new Builder(EMPTY);
+		for(Claim claim : claims) {
+			if(claim.inDataStore && claim.parent == null && claim.id != null) {
+				builder.add(new Entry(claim, null));
+			}
+		}
+
+		return builder.finish(version);
+	}
+
+	//builds the next snapshot after some top level claims changed
+	//changed claims which are no longer in the data store are removed, the rest are copied again
+	ClaimSnapshot update(Collection<Claim> changedClaims) {
+		Builder builder = new Builder(this);
+		for(Claim claim : changedClaims) {
+			if(claim.id == null) continue;
+
+			Entry oldEntry = this.getClaim(claim.id);
+			if(oldEntry != null) {
+				builder.remove(oldEntry);
+			}
+
+			if(claim.inDataStore && claim.parent == null) {
+				builder.add(new Entry(claim, null));
+			}
+		}
+
+		return builder.finish(this.version + 1);
+	}
+
+	//copies the parts of a snapshot it changes, the first time it changes them
+	private static final class Builder {
+		private final HashMap<UUID, Map<Long, Map<Long, Entry[]>>> worlds;
+		private final Map<Long, Entry>[] idShards;
+		private final Map<UUID, List<Entry>>[] ownerShards;
+		private int claimCount;
+
+		private final HashSet<UUID> copiedWorlds = new HashSet<>();
+		private final Set<Map<Long, Entry[]>> copiedRegions = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final boolean[] copiedIdShards = new boolean[SHARD_COUNT];
+		private final boolean[] copiedOwnerShards = new boolean[SHARD_COUNT];
+		private final Set<List<Entry>> copiedOwnerLists = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		private Builder(ClaimSnapshot base) {
+			this.worlds = new HashMap<>(base.worlds);
+			this.idShards = base.idShards.clone();
+			this.ownerShards = base.ownerShards.clone();
+			this.claimCount = base.claimCount;
+		}
+
+		private void add(Entry entry) {
+			this.idShard(entry.id).put(entry.id, entry);
+			for(Entry child : entry.children) {
+				this.idShard(child.id).put(child.id, child);
+			}
+
+			if(entry.ownerID != null) {
+				Map<UUID, List<Entry>> ownerShard = this.ownerShard(entry.ownerID);
+				List<Entry> ownedEntries = this.ownerList(ownerShard, entry.ownerID);
+				ownedEntries.add(entry);
+			}
+
+			Map<Long, Map<Long, Entry[]>> regions = this.regions(entry.worldID);
+			for(int chunkx = entry.lesserX >> 4; chunkx <= entry.greaterX >> 4; chunkx++) {
+				for(int chunkz = entry.lesserZ >> 4; chunkz <= entry.greaterZ >> 4; chunkz++) {
+					Map<Long, Entry[]> chunks = this.region(regions, chunkx, chunkz);
+					long chunkHash = DataStore.getChunkHash(chunkx, chunkz);
+					Entry[] entriesInChunk = chunks.get(chunkHash);
+					if(entriesInChunk == null) {
+						chunks.put(chunkHash, new Entry[]{entry});
+					} else {
+						Entry[] newEntriesInChunk = Arrays.copyOf(entriesInChunk, entriesInChunk.length + 1);
+						newEntriesInChunk[entriesInChunk.length] = entry;
+						chunks.put(chunkHash, newEntriesInChunk);
+					}
+				}
+			}
+
+			this.claimCount++;
+		}
+
+		private void remove(Entry entry) {
+			this.idShard(entry.id).remove(entry.id);
+			for(Entry child : entry.children) {
+				this.idShard(child.id).remove(child.id);
+			}
+
+			if(entry.ownerID != null) {
+				Map<UUID, List<Entry>> ownerShard = this.ownerShard(entry.ownerID);
+				if(ownerShard.containsKey(entry.ownerID)) {
+					List<Entry> ownedEntries = this.ownerList(ownerShard, entry.ownerID);
+					ownedEntries.remove(entry);
+					if(ownedEntries.isEmpty()) {
+						ownerShard.remove(entry.ownerID);
+					}
+				}
+			}
+
+			Map<Long, Map<Long, Entry[]>> regions = this.regions(entry.worldID);
+			for(int chunkx = entry.lesserX >> 4; chunkx <= entry.greaterX >> 4; chunkx++) {
+				for(int chunkz = entry.lesserZ >> 4; chunkz <= entry.greaterZ >> 4; chunkz++) {
+					if(!regions.containsKey(regionHash(chunkx, chunkz))) continue;
+
+					Map<Long, Entry[]> chunks = this.region(regions, chunkx, chunkz);
+					long chunkHash = DataStore.getChunkHash(chunkx, chunkz);
+					Entry[] entriesInChunk = chunks.get(chunkHash);
+					if(entriesInChunk == null) continue;
+
+					ArrayList<Entry> remaining = new ArrayList<>(entriesInChunk.length);
+					for(Entry entryInChunk : entriesInChunk) {
+						if(entryInChunk.id != entry.id) remaining.add(entryInChunk);
+					}
+
+					if(remaining.isEmpty()) {
+						chunks.remove(chunkHash);
+						if(chunks.isEmpty()) {
+							regions.remove(regionHash(chunkx, chunkz));
+						}
+					} else {
+						chunks.put(chunkHash, remaining.toArray(new Entry[0]));
+					}
+				}
+			}
+
+			this.claimCount--;
+		}
+
+		private Map<Long, Entry> idShard(long id) {
+			int shard = shardFor(id);
+			if(!this.copiedIdShards[shard]) {
+				this.idShards[shard] = new HashMap<>(this.idShards[shard]);
+				this.copiedIdShards[shard] = true;
+			}
+
+			return this.idShards[shard];
+		}
+
+		private Map<UUID, List<Entry>> ownerShard(UUID ownerID) {
+			int shard = shardFor(ownerID);
+			if(!this.copiedOwnerShards[shard]) {
+				this.ownerShards[shard] = new HashMap<>(this.ownerShards[shard]);
+				this.copiedOwnerShards[shard] = true;
+			}
+
+			return this.ownerShards[shard];
+		}
+
+		private List<Entry> ownerList(Map<UUID, List<Entry>> ownerShard, UUID ownerID) {
+			List<Entry> ownedEntries = ownerShard.get(ownerID);
+			if(ownedEntries == null || !this.copiedOwnerLists.contains(ownedEntries)) {
+				ownedEntries = ownedEntries == null ? new ArrayList<>() : new ArrayList<>(ownedEntries);
+				ownerShard.put(ownerID, ownedEntries);
+				this.copiedOwnerLists.add(ownedEntries);
+			}
+
+			return ownedEntries;
+		}
+
+		private Map<Long, Map<Long, Entry[]>> regions(UUID worldID) {
+			Map<Long, Map<Long, Entry[]>> regions = this.worlds.get(worldID);
+			if(regions == null || !this.copiedWorlds.contains(worldID)) {
+				regions = regions == null ? new HashMap<>() : new HashMap<>(regions);
+				this.worlds.put(worldID, regions);
+				this.copiedWorlds.add(worldID);
+			}
+
+			return regions;
+		}
+
+		private Map<Long, Entry[]> region(Map<Long, Map<Long, Entry[]>> regions, int chunkx, int chunkz) {
+			long regionHash = regionHash(chunkx, chunkz);
+			Map<Long, Entry[]> chunks = regions.get(regionHash);
+			if(chunks == null || !this.copiedRegions.contains(chunks)) {
+				chunks = chunks == null ? new HashMap<>() : new HashMap<>(chunks);
+				regions.put(regionHash, chunks);
+				this.copiedRegions.add(chunks);
+			}
+
+			return chunks;
+		}
+
+		private ClaimSnapshot finish(long version) {
+			return new ClaimSnapshot(version, this.worlds, this.idShards, this.ownerShards, this.claimCount);
+		}
+	}
+
+	private static long regionHash(int chunkx, int chunkz) {
+		return DataStore.getChunkHash(chunkx >> REGION_SHIFT, chunkz >> REGION_SHIFT);
+	}
+
+	private static int shardFor(long id) {
+		return (int) (id ^ (id >>> 32)) & (SHARD_COUNT - 1);
+	}
+
+	private static int shardFor(UUID ownerID) {
+		return ownerID.hashCode() & (SHARD_COUNT - 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Map<K, V>[] newShards() {
+		Map<K, V>[] shards = new Map[SHARD_COUNT];
+		for(int i = 0; i < SHARD_COUNT; i++) {
+			shards[i] = new HashMap<>();
+		}
+
+		return shards;
+	}
+}
@@ -0,0 +1,182 @@
+package com.github.xt449.griefpreventionlight;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Properties;
+
+//a few database connections shared by the database store, so a slow query on one thread doesn't hold up the others
+//connections are opened when needed up to a limit, and handed out most recently used first
+//a connection which sat unused for a while is checked before it's handed out again, since the server may have dropped it
+class ConnectionPool {
+	interface SqlWork<T> {
+		T run(Connection connection) throws SQLException;
+	}
+
+	private static final long VALIDATE_AFTER_IDLE_MILLIS = 30000;
+	private static final int VALIDATE_TIMEOUT_SECONDS = 3;
+
+	private static final class IdleConnection {
+		final Connection connection;
+		final long idleSince;
+
+		IdleConnection(Connection connection) {
+			this.connection = connection;
+			this.idleSince = System.currentTimeMillis();
+		}
+	}
+
+	private final String url;
+	private final Properties connectionProps;
+	private final int maxConnections;
+	private final long borrowTimeoutMillis;
+
+	//this, openConnections and closed are all guarded by idleConnections
+	private final ArrayDeque<IdleConnection> idleConnections = new ArrayDeque<>();
+	private int openConnections = 0;
+	private boolean closed = false;
+
+	ConnectionPool(String url, Properties connectionProps, int maxConnections, long borrowTimeoutMillis) {
+		this.url = url;
+		this.connectionProps = connectionProps;
+		this.maxConnections = Math.max(1, maxConnections);
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+	}
+
+	//gets a connection for the calling thread's use only, waiting for one to be released if they're all in use
+	//every connection borrowed must be given back with release() or discard()
+	Connection borrow() throws SQLException {
+		long deadline = System.currentTimeMillis() + this.borrowTimeoutMillis;
+		while(true) {
+			IdleConnection idleConnection;
+			synchronized(this.idleConnections) {
+				while(true) {
+					if(this.closed) throw new SQLException("The database connection pool is closed.");
+
+					idleConnection = this.idleConnections.pollFirst();
+					if(idleConnection != null) break;
+
+					if(this.openConnections < this.maxConnections) {
+						this.openConnections++;
+						break;
+					}
+
+					long remaining = deadline - System.currentTimeMillis();
+					if(remaining <= 0) {
+						throw new SQLException("Timed out waiting for a database connection, all " + this.maxConnections + " are in use.");
+					}
+
+					try {
+						this.idleConnections.wait(remaining);
+					} catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a database connection.");
+					}
+				}
+			}
+
+			//a free slot, open a new connection for it
+			if(idleConnection == null) {
+				try {
+					return DriverManager.getConnection(this.url, this.connectionProps);
+				} catch(SQLException e) {
+					this.connectionClosed();
+					throw e;
+				}
+			}
+
+			if(System.currentTimeMillis() - idleConnection.idleSince < VALIDATE_AFTER_IDLE_MILLIS || isValid(idleConnection.connection)) {
+				return idleConnection.connection;
+			}
+
+			this.discard(idleConnection.connection);
+		}
+	}
+
+	//gives a working connection back to the pool
+	void release(Connection connection) {
+		synchronized(this.idleConnections) {
+			if(!this.closed) {
+				this.idleConnections.addFirst(new IdleConnection(connection));
+				this.idleConnections.notifyAll();
+				return;
+			}
+		}
+
+		this.discard(connection);
+	}
+
+	//closes a connection which has stopped working, freeing its slot for a new one
+	void discard(Connection connection) {
+		try {
+			connection.close();
+		} catch(SQLException e) {
+		}
+
+		this.connectionClosed();
+	}
+
+	private void connectionClosed() {
+		synchronized(this.idleConnections) {
+			this.openConnections--;
+			this.idleConnections.notifyAll();
+		}
+	}
+
+	//swaps a borrowed connection for a new one if it's stopped working, e.g. during a long conversion
+	Connection refresh(Connection connection) throws SQLException {
+		if(isValid(connection)) return connection;
+
+		this.discard(connection);
+		return this.borrow();
+	}
+
+	//runs some work on a borrowed connection, and gives it back afterwards
+	<T> T withConnection(SqlWork<T> work) throws SQLException {
+		Connection connection = this.borrow();
+		boolean broken = false;
+		try {
+			return work.run(connection);
+		} catch(SQLException e) {
+			broken = !isValid(connection);
+			throw e;
+		} finally {
+			if(broken) {
+				this.discard(connection);
+			} else {
+				this.release(connection);
+			}
+		}
+	}
+
+	static boolean isValid(Connection connection) {
+		try {
+			return connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+		} catch(SQLException e) {
+			return false;
+		}
+	}
+
+	//number of connections open, whether in use or not
+	int getOpenConnections() {
+		synchronized(this.idleConnections) {
+			return this.openConnections;
+		}
+	}
+
+	//closes every idle connection, the rest are closed as they're given back
+	void close() {
+		ArrayDeque<IdleConnection> connectionsToClose;
+		synchronized(this.idleConnections) {
+			this.closed = true;
+			connectionsToClose = new ArrayDeque<>(this.idleConnections);
+			this.idleConnections.clear();
+			this.idleConnections.notifyAll();
+		}
+
+		for(IdleConnection idleConnection : connectionsToClose) {
+			this.discard(idleConnection.connection);
+		}
+	}
+}
@@ -23,6 +23,7 @@ import com.github.xt449.griefpreventionlight.events.ClaimDeletedEvent;
 import com.github.xt449.griefpreventionlight.events.ClaimModifiedEvent;
 import com.google.common.io.Files;
 import org.bukkit.*;
+import org.bukkit.block.Block;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.AnimalTamer;
@@ -35,6 +36,13 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 //singleton class which manages all GriefPrevention data (except for config options)
@@ -48,7 +56,9 @@ public abstract class DataStore {
 
 	//in-memory cache for claim data
 	ArrayList<Claim> claims = new ArrayList<>();
-	ConcurrentHashMap<Long, ArrayList<Claim>> chunksToClaimsMap = new ConcurrentHashMap<>();
+	final ClaimIndex claimIndex = new ClaimIndex();
+	final ConcurrentHashMap<Long, Claim> idToClaimMap = new ConcurrentHashMap<>();  //includes subdivisions
+	private final ConcurrentHashMap<UUID, ArrayList<Claim>> ownerToClaimsMap = new ConcurrentHashMap<>();  //top level claims only, admin claims aren't listed
 
 	//in-memory cache for messages
 	private String[] messages;
@@ -56,9 +66,46 @@ public abstract class DataStore {
 	//pattern for unique user identifiers (UUIDs)
 	protected final static Pattern uuidpattern = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
 
+	//guards the claim registry above
+	//only creating, resizing, transferring, saving and deleting claims write, lookups never block each other
+	//lookups go optimistic first through the stamped lock, which writers hold too, and retry under the read lock if a write got in the way
+	//the reentrant lock is what writers really synchronize on, since events fired mid-write can lead straight back into the data store
+	private final ReentrantReadWriteLock claimLock = new ReentrantReadWriteLock();
+	private final StampedLock claimStampedLock = new StampedLock();
+	private long claimWriteStamp;
+
+	//immutable copy of the claims for readers on other threads, replaced whenever a write section changed any claims
+	private volatile ClaimSnapshot claimSnapshot = ClaimSnapshot.EMPTY;
+
+	//top level claims changed by the current write section, copied into a new snapshot when it ends
+	//nothing is collected until initialize() has built the first snapshot
+	private final Set<Claim> claimsChangedSinceSnapshot = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean claimSnapshotsEnabled = false;
+
+	//claim writes and deletes waiting for the next flush, by claim ID, so repeated changes to a claim are written once
+	//insertion order is the order of each claim's first change since the last flush
+	//nothing is deferred until initialize() is done, and never if the save interval is 0
+	private final LinkedHashMap<Long, PendingClaimWrite> pendingClaimWrites = new LinkedHashMap<>();
+	private boolean claimWritesDeferred = false;
+
+	//every flush goes to the same storage lane, so flushes never overlap and a claim's writes land in order
+	private static final Object CLAIM_WRITE_KEY = new Object();
+
+	//claim write statistics
+	private final AtomicLong claimWritesInFlight = new AtomicLong();
+	private final LongAdder claimWriteCount = new LongAdder();
+	private final LongAdder claimFlushCount = new LongAdder();
+	private final LongAdder totalClaimWriteLatencyNanos = new LongAdder();
+	private final AtomicLong maxClaimWriteLatencyNanos = new AtomicLong();
+	private volatile long lastClaimFlushNanos = 0;
+
 	//next claim ID
 	Long nextClaimID = (long) 0;
 
+	//the next claim ID as last written to secondary storage, always at least nextClaimID once an ID has been handed out
+	//IDs are leased from storage in blocks, so creating a claim only writes the next claim ID when a block runs out
+	private long storedNextClaimID = 0;
+
 	//path information, for where stuff stored on disk is well...  stored
 	protected final static String dataLayerFolderPath = "plugins" + File.separator + "GriefPreventionData";
 	final static String playerDataFolderPath = dataLayerFolderPath + File.separator + "PlayerData";
@@ -112,6 +159,9 @@ public abstract class DataStore {
 				nextClaimID = claim.id + 1;
 			}
 		}
+		if(this.storedNextClaimID < this.nextClaimID) {
+			this.storedNextClaimID = this.nextClaimID;
+		}
 
 		//ensure data folders exist
 		File playerDataFolder = new File(playerDataFolderPath);
@@ -147,6 +197,22 @@ public abstract class DataStore {
 		//load list of soft mutes
 		this.loadSoftMutes();
 
+		//build the first claim snapshot, later ones are built from it as claims change
+		this.beginClaimWrite();
+		try {
+			this.claimSnapshot = ClaimSnapshot.build(this.claimSnapshot.version + 1, this.claims);
+			this.claimSnapshotsEnabled = true;
+		} finally {
+			this.endClaimWrite();
+		}
+
+		//from here on claim changes are written behind, by a timer on the main thread
+		int claimSaveInterval = GriefPreventionLight.instance.config_advanced_claimSaveIntervalTicks;
+		if(claimSaveInterval > 0) {
+			this.claimWritesDeferred = true;
+			Bukkit.getScheduler().runTaskTimer(GriefPreventionLight.instance, this::flushClaimWrites, claimSaveInterval, claimSaveInterval);
+		}
+
 		//make a note of the data store schema version
 		this.setSchemaVersion(latestSchemaVersion);
 	}
@@ -212,13 +278,28 @@ public abstract class DataStore {
 	}
 
 	//updates soft mute map and data file
+	//locked so chat threads muting the same player at once can't undo each other or interleave writes to the file
 	boolean toggleSoftMute(UUID playerID) {
-		boolean newValue = !this.isSoftMuted(playerID);
+		synchronized(this.softMuteMap) {
+			boolean newValue = !this.isSoftMuted(playerID);
 
-		this.softMuteMap.put(playerID, newValue);
-		this.saveSoftMutes();
+			this.softMuteMap.put(playerID, newValue);
+			this.saveSoftMutes();
 
-		return newValue;
+			return newValue;
+		}
+	}
+
+	//soft mutes a player unless they already are, returns false if they were
+	boolean softMute(UUID playerID) {
+		synchronized(this.softMuteMap) {
+			if(this.isSoftMuted(playerID)) return false;
+
+			this.softMuteMap.put(playerID, true);
+			this.saveSoftMutes();
+
+			return true;
+		}
 	}
 
 	public boolean isSoftMuted(UUID playerID) {
@@ -257,8 +338,81 @@ public abstract class DataStore {
 		}
 	}
 
+	void beginClaimWrite() {
+		this.claimLock.writeLock().lock();
+		if(this.claimLock.getWriteHoldCount() == 1) {
+			this.claimWriteStamp = this.claimStampedLock.writeLock();
+		}
+	}
+
+	void endClaimWrite() {
+		if(this.claimLock.getWriteHoldCount() == 1) {
+			try {
+				this.publishClaimSnapshot();
+			} finally {
+				this.claimStampedLock.unlockWrite(this.claimWriteStamp);
+			}
+		}
+		this.claimLock.writeLock().unlock();
+	}
+
+	//notes a claim whose snapshot copy must be refreshed when the current write section ends
+	//subdivisions refresh their parent, since snapshot copies of top level claims carry their subdivisions
+	private void claimChanged(Claim claim) {
+		if(!this.claimSnapshotsEnabled) return;
+
+		this.claimsChangedSinceSnapshot.add(claim.parent != null ? claim.parent : claim);
+	}
+
+	private void publishClaimSnapshot() {
+		if(this.claimsChangedSinceSnapshot.isEmpty()) return;
+
+		try {
+			this.claimSnapshot = this.claimSnapshot.update(this.claimsChangedSinceSnapshot);
+		} finally {
+			this.claimsChangedSinceSnapshot.clear();
+		}
+	}
+
+	//refreshes the snapshot copy of a claim after a change which doesn't go through saveClaim()
+	void refreshClaimSnapshot(Claim claim) {
+		this.beginClaimWrite();
+		try {
+			this.claimChanged(claim);
+		} finally {
+			this.endClaimWrite();
+		}
+	}
+
+	//gets an immutable copy of all claims, which can be read from any thread without locking
+	//the copy never changes, call this again to see later changes
+	public ClaimSnapshot getClaimSnapshot() {
+		return this.claimSnapshot;
+	}
+
+	//runs a lookup against the claim registry, optimistically first so readers don't wait on each other or on writers
+	//if a write got in the way, the lookup is repeated under the read lock
+	private <T> T readClaims(Supplier<T> lookup) {
+		long stamp = this.claimStampedLock.tryOptimisticRead();
+		if(stamp != 0) {
+			try {
+				T result = lookup.get();
+				if(this.claimStampedLock.validate(stamp)) return result;
+			} catch(RuntimeException ignored) {
+				//the lookup saw a half finished write, the locked read below settles it
+			}
+		}
+
+		this.claimLock.readLock().lock();
+		try {
+			return lookup.get();
+		} finally {
+			this.claimLock.readLock().unlock();
+		}
+	}
+
 	//removes cached player data from memory
-	synchronized void clearCachedPlayerData(UUID playerID) {
+	void clearCachedPlayerData(UUID playerID) {
 		this.playerNameToPlayerDataMap.remove(playerID);
 	}
 
@@ -305,99 +459,132 @@ public abstract class DataStore {
 		}
 	}
 
-	synchronized public void changeClaimOwner(Claim claim, UUID newOwnerID) {
-		//if it's a subdivision, throw an exception
-		if(claim.parent != null) {
-			throw new NoTransferException("Subdivisions can't be transferred.  Only top-level claims may change owners.");
-		}
+	public void changeClaimOwner(Claim claim, UUID newOwnerID) {
+		this.beginClaimWrite();
+		try {
+			//if it's a subdivision, throw an exception
+			if(claim.parent != null) {
+				throw new NoTransferException("Subdivisions can't be transferred.  Only top-level claims may change owners.");
+			}
 
-		//otherwise update information
+			//otherwise update information
 
-		//determine current claim owner
-		PlayerData ownerData = null;
-		if(!claim.isAdminClaim()) {
-			ownerData = this.getPlayerData(claim.ownerID);
-		}
+			//determine current claim owner
+			PlayerData ownerData = null;
+			if(!claim.isAdminClaim()) {
+				ownerData = this.getPlayerData(claim.ownerID);
+			}
 
-		//determine new owner
-		PlayerData newOwnerData = null;
+			//determine new owner
+			PlayerData newOwnerData = null;
 
-		if(newOwnerID != null) {
-			newOwnerData = this.getPlayerData(newOwnerID);
-		}
+			if(newOwnerID != null) {
+				newOwnerData = this.getPlayerData(newOwnerID);
+			}
 
-		//transfer
-		claim.ownerID = newOwnerID;
-		this.saveClaim(claim);
+			//transfer
+			this.removeFromOwnerClaimMap(claim);
+			claim.ownerID = newOwnerID;
+			this.addToOwnerClaimMap(claim);
+			this.saveClaim(claim);
 
-		//adjust blocks and other records
-		if(ownerData != null) {
-			ownerData.getClaims().remove(claim);
-		}
+			//adjust blocks and other records
+			if(ownerData != null) {
+				ownerData.getClaims().remove(claim);
+			}
 
-		if(newOwnerData != null) {
-			newOwnerData.getClaims().add(claim);
+			if(newOwnerData != null) {
+				newOwnerData.getClaims().add(claim);
+			}
+		} finally {
+			this.endClaimWrite();
 		}
 	}
 
 	//adds a claim to the datastore, making it an effective claim
-	synchronized void addClaim(Claim newClaim, boolean writeToStorage) {
-		//subdivisions are added under their parent, not directly to the hash map for direct search
-		if(newClaim.parent != null) {
-			if(!newClaim.parent.children.contains(newClaim)) {
-				newClaim.parent.children.add(newClaim);
+	void addClaim(Claim newClaim, boolean writeToStorage) {
+		this.beginClaimWrite();
+		try {
+			//subdivisions are added under their parent, not directly to the hash map for direct search
+			if(newClaim.parent != null) {
+				if(!newClaim.parent.children.contains(newClaim)) {
+					newClaim.parent.children.add(newClaim);
+					newClaim.parent.invalidateSubdivisionIndex();
+				}
+				newClaim.inDataStore = true;
+				this.addToClaimIDMap(newClaim);
+				this.claimChanged(newClaim);
+				if(writeToStorage) {
+					this.saveClaim(newClaim);
+				}
+				return;
 			}
+
+			//add it and mark it as added
+			this.claims.add(newClaim);
+			addToChunkClaimMap(newClaim);
+
 			newClaim.inDataStore = true;
+			this.addToClaimIDMap(newClaim);
+			this.addToOwnerClaimMap(newClaim);
+			this.claimChanged(newClaim);
+
+			//except for administrative claims (which have no owner), update the owner's playerData with the new claim
+			if(!newClaim.isAdminClaim() && writeToStorage) {
+				PlayerData ownerData = this.getPlayerData(newClaim.ownerID);
+				ownerData.getClaims().add(newClaim);
+			}
+
+			//make sure the claim is saved to disk
 			if(writeToStorage) {
 				this.saveClaim(newClaim);
 			}
-			return;
+		} finally {
+			this.endClaimWrite();
 		}
+	}
 
-		//add it and mark it as added
-		this.claims.add(newClaim);
-		addToChunkClaimMap(newClaim);
+	private void addToChunkClaimMap(Claim claim) {
+		this.claimIndex.add(claim);
+	}
 
-		newClaim.inDataStore = true;
+	private void removeFromChunkClaimMap(Claim claim) {
+		this.claimIndex.remove(claim);
+	}
 
-		//except for administrative claims (which have no owner), update the owner's playerData with the new claim
-		if(!newClaim.isAdminClaim() && writeToStorage) {
-			PlayerData ownerData = this.getPlayerData(newClaim.ownerID);
-			ownerData.getClaims().add(newClaim);
+	//claims loaded from old data may not have an ID yet, those are added once saveClaim() assigns one
+	private void addToClaimIDMap(Claim claim) {
+		if(claim.id != null) {
+			this.idToClaimMap.put(claim.id, claim);
 		}
+	}
 
-		//make sure the claim is saved to disk
-		if(writeToStorage) {
-			this.saveClaim(newClaim);
-		}
+	private void addToOwnerClaimMap(Claim claim) {
+		if(claim.parent != null || claim.ownerID == null) return;
+
+		this.ownerToClaimsMap.computeIfAbsent(claim.ownerID, k -> new ArrayList<>()).add(claim);
 	}
 
-	private void addToChunkClaimMap(Claim claim) {
-		ArrayList<Long> chunkHashes = claim.getChunkHashes();
-		for(Long chunkHash : chunkHashes) {
-			ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.computeIfAbsent(chunkHash, k -> new ArrayList<>());
+	private void removeFromOwnerClaimMap(Claim claim) {
+		if(claim.parent != null || claim.ownerID == null) return;
 
-			claimsInChunk.add(claim);
+		ArrayList<Claim> ownedClaims = this.ownerToClaimsMap.get(claim.ownerID);
+		if(ownedClaims == null) return;
+
+		ownedClaims.remove(claim);
+		if(ownedClaims.isEmpty()) {
+			this.ownerToClaimsMap.remove(claim.ownerID);
 		}
 	}
 
-	private void removeFromChunkClaimMap(Claim claim) {
-		ArrayList<Long> chunkHashes = claim.getChunkHashes();
-		for(Long chunkHash : chunkHashes) {
-			ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkHash);
-			if(claimsInChunk != null) {
-				for(Iterator<Claim> it = claimsInChunk.iterator(); it.hasNext(); ) {
-					Claim c = it.next();
-					if(c.id.equals(claim.id)) {
-						it.remove();
-						break;
-					}
-				}
-				if(claimsInChunk.isEmpty()) { // if nothing's left, remove this chunk's cache
-					this.chunksToClaimsMap.remove(chunkHash);
-				}
-			}
-		}
+	//gets the top level claims owned by a player, without looking through every claim
+	ArrayList<Claim> getClaimsOwnedBy(UUID ownerID) {
+		return this.readClaims(() -> {
+			ArrayList<Claim> ownedClaims = this.ownerToClaimsMap.get(ownerID);
+			if(ownedClaims == null) return new ArrayList<>();
+
+			return new ArrayList<>(ownedClaims);
+		});
 	}
 
 	//turns a location into a string, useful in data storage
@@ -407,8 +594,18 @@ public abstract class DataStore {
 		return location.getWorld().getName() + locationStringDelimiter + location.getBlockX() + locationStringDelimiter + location.getBlockZ();
 	}
 
+	//loaded worlds by lower case name, for resolving the world names in location strings
+	static Map<String, World> getWorldsByName() {
+		HashMap<String, World> worldsByName = new HashMap<>();
+		for(World world : Bukkit.getServer().getWorlds()) {
+			worldsByName.putIfAbsent(world.getName().toLowerCase(), world);
+		}
+
+		return worldsByName;
+	}
+
 	//turns a location string back into a location
-	Location locationFromString(String string, List<World> validWorlds) throws Exception {
+	Location locationFromString(String string, Map<String, World> worldsByName) throws Exception {
 		//split the input string on the space
 		String[] elements = string.split(locationStringDelimiter);
 
@@ -422,13 +619,7 @@ public abstract class DataStore {
 		String zString = elements[2];
 
 		//identify world the claim is in
-		World world = null;
-		for(World w : validWorlds) {
-			if(w.getName().equalsIgnoreCase(worldName)) {
-				world = w;
-				break;
-			}
-		}
+		World world = worldsByName.get(worldName.toLowerCase());
 
 		if(world == null) {
 			throw new Exception("World not found: \"" + worldName + "\"");
@@ -442,10 +633,20 @@ public abstract class DataStore {
 	}
 
 	//saves any changes to a claim to secondary storage
-	synchronized public void saveClaim(Claim claim) {
-		assignClaimID(claim);
+	public void saveClaim(Claim claim) {
+		this.beginClaimWrite();
+		try {
+			assignClaimID(claim);
+			this.claimChanged(claim);
 
-		this.writeClaimToStorage(claim);
+			if(this.claimWritesDeferred) {
+				this.queueClaimWrite(claim, false);
+			} else {
+				this.writeClaimToStorage(claim);
+			}
+		} finally {
+			this.endClaimWrite();
+		}
 	}
 
 	private void assignClaimID(Claim claim) {
@@ -453,27 +654,61 @@ public abstract class DataStore {
 		if(claim.id == null || claim.id == -1) {
 			claim.id = this.nextClaimID;
 			this.incrementNextClaimID();
+
+			if(claim.inDataStore) {
+				this.addToClaimIDMap(claim);
+			}
 		}
 	}
 
 	abstract void writeClaimToStorage(Claim claim);
 
-	//increments the claim ID and updates secondary storage to be sure it's saved
-	abstract void incrementNextClaimID();
+	//increments the claim ID, leasing a new block of IDs from secondary storage when the current one runs out
+	//if the server goes down without releaseClaimIDs(), the next start carries on from the end of the block, so no ID is ever handed out twice
+	synchronized void incrementNextClaimID() {
+		this.nextClaimID++;
+
+		if(this.nextClaimID > this.storedNextClaimID) {
+			this.storedNextClaimID = this.nextClaimID + Math.max(0, GriefPreventionLight.instance.config_advanced_claimIDBlockSize - 1);
+			this.writeNextClaimIDToStorage(this.storedNextClaimID);
+		}
+	}
+
+	//gives back the rest of the current block of claim IDs on a clean shutdown, so restarts don't skip any
+	synchronized void releaseClaimIDs() {
+		if(this.storedNextClaimID != this.nextClaimID) {
+			this.storedNextClaimID = this.nextClaimID;
+			this.writeNextClaimIDToStorage(this.nextClaimID);
+		}
+	}
+
+	//for stores which set the next claim ID themselves, e.g. while migrating, and have already written it
+	synchronized void nextClaimIDStored(long nextID) {
+		this.nextClaimID = nextID;
+		this.storedNextClaimID = nextID;
+	}
+
+	//saves the next claim ID to secondary storage
+	abstract void writeNextClaimIDToStorage(long nextID);
 
 	//retrieves player data from memory or secondary storage, as necessary
 	//if the player has never been on the server before, this will return a fresh player data with default values
-	synchronized public PlayerData getPlayerData(UUID playerID) {
+	public PlayerData getPlayerData(UUID playerID) {
 		//first, look in memory
 		PlayerData playerData = this.playerNameToPlayerDataMap.get(playerID);
 
 		//if not there, build a fresh instance with some blanks for what may be in secondary storage
+		//and shove it into the hash map cache, unless another thread just beat us to it
+		//data read ahead while the player was logging in is used if there is any
 		if(playerData == null) {
-			playerData = new PlayerData();
-			playerData.playerID = playerID;
-
-			//shove that new player data into the hash map cache
-			this.playerNameToPlayerDataMap.put(playerID, playerData);
+			playerData = this.playerNameToPlayerDataMap.computeIfAbsent(playerID, id -> {
+				PrefetchedPlayerData prefetchedPlayerData = this.prefetchedPlayerDataMap.remove(id);
+				if(prefetchedPlayerData != null && !prefetchedPlayerData.isExpired(System.currentTimeMillis())) return prefetchedPlayerData.playerData;
+
+				PlayerData newPlayerData = new PlayerData();
+				newPlayerData.playerID = id;
+				return newPlayerData;
+			});
 		}
 
 		return playerData;
@@ -481,73 +716,153 @@ public abstract class DataStore {
 
 	abstract PlayerData getPlayerDataFromStorage(UUID playerID);
 
-	//deletes a claim or subdivision
-	synchronized public void deleteClaim(Claim claim, boolean releasePets) {
-		this.deleteClaim(claim, true, releasePets);
-	}
+	//how long read ahead player data waits to be picked up, a login which doesn't get that far is never going to
+	private static final long PREFETCH_EXPIRY_MILLIS = 60000;
 
-	synchronized void deleteClaim(Claim claim, boolean fireEvent, boolean releasePets) {
-		//delete any children
-		for(int j = 1; (j - 1) < claim.children.size(); j++) {
-			this.deleteClaim(claim.children.get(j - 1), true);
+	private static final class PrefetchedPlayerData {
+		final PlayerData playerData;
+		final long expiresAt;
+
+		PrefetchedPlayerData(PlayerData playerData) {
+			this.playerData = playerData;
+			this.expiresAt = System.currentTimeMillis() + PREFETCH_EXPIRY_MILLIS;
 		}
 
-		//subdivisions must also be removed from the parent claim child list
-		if(claim.parent != null) {
-			Claim parentClaim = claim.parent;
-			parentClaim.children.remove(claim);
+		boolean isExpired(long now) {
+			return now >= this.expiresAt;
 		}
+	}
+
+	//player data read ahead of time for players who are still logging in, waiting to be picked up by getPlayerData
+	//entries are dropped when a login is refused, and any left behind by e.g. a client disconnecting mid login expire
+	private final ConcurrentHashMap<UUID, PrefetchedPlayerData> prefetchedPlayerDataMap = new ConcurrentHashMap<>();
 
-		//mark as deleted so any references elsewhere can be ignored
-		claim.inDataStore = false;
+	//reads a logging in player's claim blocks and ignore list, so joining doesn't have to wait on secondary storage
+	//runs behind any saves still queued for the player and then waits for it, so never call this from the main thread
+	void prefetchPlayerData(UUID playerID, long timeoutMillis) {
+		//clear out anything nobody came back for
+		long now = System.currentTimeMillis();
+		this.prefetchedPlayerDataMap.values().removeIf(prefetchedPlayerData -> prefetchedPlayerData.isExpired(now));
+
+		//already in memory, nothing to do
+		if(this.playerNameToPlayerDataMap.containsKey(playerID)) return;
+
+		CountDownLatch loaded = new CountDownLatch(1);
+		GriefPreventionLight.instance.storageExecutor.execute(playerID, () -> {
+			try {
+				if(this.playerNameToPlayerDataMap.containsKey(playerID)) return;
+
+				PlayerData playerData = new PlayerData();
+				playerData.playerID = playerID;
+				playerData.loadDataFrom(this.getPlayerDataFromStorage(playerID));
+				new IgnoreLoaderTask(playerID, playerData.ignoredPlayers).run();
+				playerData.ignoreListLoaded = true;
+
+				//if something asked for this player's data while we were reading it, that copy is the one in use
+				PrefetchedPlayerData prefetchedPlayerData = new PrefetchedPlayerData(playerData);
+				this.prefetchedPlayerDataMap.put(playerID, prefetchedPlayerData);
+				if(this.playerNameToPlayerDataMap.containsKey(playerID)) {
+					this.prefetchedPlayerDataMap.remove(playerID, prefetchedPlayerData);
+				}
+			} finally {
+				loaded.countDown();
+			}
+		});
 
-		//remove from memory
-		for(int i = 0; i < this.claims.size(); i++) {
-			if(claims.get(i).id.equals(claim.id)) {
-				this.claims.remove(i);
-				break;
+		try {
+			if(!loaded.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				GriefPreventionLight.AddLogEntry("Timed out reading player data for " + playerID + " during login, it will be read when first needed instead.", CustomLogEntryTypes.Debug, true);
 			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+	}
+
+	//drops player data read ahead for a login which was refused
+	void discardPrefetchedPlayerData(UUID playerID) {
+		this.prefetchedPlayerDataMap.remove(playerID);
+	}
+
+	//deletes a claim or subdivision
+	public void deleteClaim(Claim claim, boolean releasePets) {
+		this.deleteClaim(claim, true, releasePets);
+	}
+
+	void deleteClaim(Claim claim, boolean fireEvent, boolean releasePets) {
+		this.beginClaimWrite();
+		try {
+			//delete any children
+			for(int j = 1; (j - 1) < claim.children.size(); j++) {
+				this.deleteClaim(claim.children.get(j - 1), true);
+			}
 
-		removeFromChunkClaimMap(claim);
+			//subdivisions must also be removed from the parent claim child list
+			if(claim.parent != null) {
+				Claim parentClaim = claim.parent;
+				parentClaim.children.remove(claim);
+				parentClaim.invalidateSubdivisionIndex();
+			}
 
-		//remove from secondary storage
-		this.deleteClaimFromSecondaryStorage(claim);
+			//mark as deleted so any references elsewhere can be ignored
+			claim.inDataStore = false;
 
-		//update player data
-		if(claim.ownerID != null) {
-			PlayerData ownerData = this.getPlayerData(claim.ownerID);
-			for(int i = 0; i < ownerData.getClaims().size(); i++) {
-				if(ownerData.getClaims().get(i).id.equals(claim.id)) {
-					ownerData.getClaims().remove(i);
+			//remove from memory
+			for(int i = 0; i < this.claims.size(); i++) {
+				if(claims.get(i).id.equals(claim.id)) {
+					this.claims.remove(i);
 					break;
 				}
 			}
-			this.savePlayerData(claim.ownerID, ownerData);
-		}
-
-		if(fireEvent) {
-			ClaimDeletedEvent ev = new ClaimDeletedEvent(claim);
-			Bukkit.getPluginManager().callEvent(ev);
-		}
-
-		//optionally set any pets free which belong to the claim owner
-		if(releasePets && claim.ownerID != null && claim.parent == null) {
-			for(Chunk chunk : claim.getChunks()) {
-				Entity[] entities = chunk.getEntities();
-				for(Entity entity : entities) {
-					if(entity instanceof Tameable) {
-						Tameable pet = (Tameable) entity;
-						if(pet.isTamed()) {
-							AnimalTamer owner = pet.getOwner();
-							if(owner != null) {
-								UUID ownerID = owner.getUniqueId();
-								if(ownerID.equals(claim.ownerID)) {
-									pet.setTamed(false);
-									pet.setOwner(null);
-									if(pet instanceof InventoryHolder) {
-										InventoryHolder holder = (InventoryHolder) pet;
-										holder.getInventory().clear();
+
+			removeFromChunkClaimMap(claim);
+			if(claim.id != null) {
+				this.idToClaimMap.remove(claim.id, claim);
+			}
+			this.removeFromOwnerClaimMap(claim);
+			this.claimChanged(claim);
+
+			//remove from secondary storage
+			if(this.claimWritesDeferred) {
+				this.queueClaimWrite(claim, true);
+			} else {
+				this.deleteClaimFromSecondaryStorage(claim);
+			}
+
+			//update player data
+			if(claim.ownerID != null) {
+				PlayerData ownerData = this.getPlayerData(claim.ownerID);
+				for(int i = 0; i < ownerData.getClaims().size(); i++) {
+					if(ownerData.getClaims().get(i).id.equals(claim.id)) {
+						ownerData.getClaims().remove(i);
+						break;
+					}
+				}
+				this.savePlayerData(claim.ownerID, ownerData);
+			}
+
+			if(fireEvent) {
+				ClaimDeletedEvent ev = new ClaimDeletedEvent(claim);
+				Bukkit.getPluginManager().callEvent(ev);
+			}
+
+			//optionally set any pets free which belong to the claim owner
+			if(releasePets && claim.ownerID != null && claim.parent == null) {
+				for(Chunk chunk : claim.getChunks()) {
+					Entity[] entities = chunk.getEntities();
+					for(Entity entity : entities) {
+						if(entity instanceof Tameable) {
+							Tameable pet = (Tameable) entity;
+							if(pet.isTamed()) {
+								AnimalTamer owner = pet.getOwner();
+								if(owner != null) {
+									UUID ownerID = owner.getUniqueId();
+									if(ownerID.equals(claim.ownerID)) {
+										pet.setTamed(false);
+										pet.setOwner(null);
+										if(pet instanceof InventoryHolder) {
+											InventoryHolder holder = (InventoryHolder) pet;
+											holder.getInventory().clear();
+										}
 									}
 								}
 							}
@@ -555,32 +870,153 @@ public abstract class DataStore {
 					}
 				}
 			}
+		} finally {
+			this.endClaimWrite();
 		}
 	}
 
 	abstract void deleteClaimFromSecondaryStorage(Claim claim);
 
+	//a claim write or delete which hasn't been flushed yet
+	private static final class PendingClaimWrite {
+		final Claim claim;
+		final boolean delete;
+
+		//when the first of the changes being coalesced here was made
+		final long queuedTime;
+
+		PendingClaimWrite(Claim claim, boolean delete, long queuedTime) {
+			this.claim = claim;
+			this.delete = delete;
+			this.queuedTime = queuedTime;
+		}
+	}
+
+	//remembers that a claim needs writing or deleting, replacing anything already pending for it
+	private void queueClaimWrite(Claim claim, boolean delete) {
+		synchronized(this.pendingClaimWrites) {
+			PendingClaimWrite previous = this.pendingClaimWrites.get(claim.id);
+			long queuedTime = previous != null ? previous.queuedTime : System.nanoTime();
+			this.pendingClaimWrites.put(claim.id, new PendingClaimWrite(claim, delete, queuedTime));
+		}
+	}
+
+	//hands every pending claim write to the storage executor
+	//must run on the main thread, where claims are changed, since the claims are copied here so the writer never sees a change half made
+	void flushClaimWrites() {
+		ArrayList<PendingClaimWrite> batch;
+		synchronized(this.pendingClaimWrites) {
+			if(this.pendingClaimWrites.isEmpty()) return;
+
+			batch = new ArrayList<>(this.pendingClaimWrites.values());
+			this.pendingClaimWrites.clear();
+		}
+
+		for(int i = 0; i < batch.size(); i++) {
+			PendingClaimWrite write = batch.get(i);
+			if(!write.delete) {
+				batch.set(i, new PendingClaimWrite(new Claim(write.claim), false, write.queuedTime));
+			}
+		}
+
+		this.claimWritesInFlight.addAndGet(batch.size());
+		GriefPreventionLight.instance.storageExecutor.execute(CLAIM_WRITE_KEY, () -> {
+			long flushStart = System.nanoTime();
+			for(PendingClaimWrite write : batch) {
+				try {
+					if(write.delete) {
+						this.deleteClaimFromSecondaryStorage(write.claim);
+					} else {
+						this.writeClaimToStorage(write.claim);
+					}
+				} finally {
+					long latency = System.nanoTime() - write.queuedTime;
+					this.totalClaimWriteLatencyNanos.add(latency);
+					this.maxClaimWriteLatencyNanos.accumulateAndGet(latency, Math::max);
+					this.claimWriteCount.increment();
+					this.claimWritesInFlight.decrementAndGet();
+				}
+			}
+
+			this.lastClaimFlushNanos = System.nanoTime() - flushStart;
+			this.claimFlushCount.increment();
+		});
+	}
+
+	//number of claim writes which haven't reached secondary storage yet
+	int getClaimWriteBacklog() {
+		synchronized(this.pendingClaimWrites) {
+			return this.pendingClaimWrites.size() + (int) this.claimWritesInFlight.get();
+		}
+	}
+
+	//one line summary of claim write backlog and latency, for the logs
+	String getClaimWriteStatus() {
+		long writes = this.claimWriteCount.sum();
+		long averageLatency = writes == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalClaimWriteLatencyNanos.sum() / writes);
+
+		return "Claim writes: " + this.getClaimWriteBacklog() + " waiting, " +
+				writes + " written in " + this.claimFlushCount.sum() + " flushes.  " +
+				"Change to disk avg " + averageLatency + "ms max " + TimeUnit.NANOSECONDS.toMillis(this.maxClaimWriteLatencyNanos.get()) + "ms, " +
+				"last flush " + TimeUnit.NANOSECONDS.toMillis(this.lastClaimFlushNanos) + "ms.";
+	}
+
 	//gets the claim at a specific location
 	//ignoreHeight = TRUE means that a location UNDER an existing claim will return the claim
 	//cachedClaim can be NULL, but will help performance if you have a reasonable guess about which claim the location is in
-	synchronized public Claim getClaimAt(Location location, Claim cachedClaim) {
-		//check cachedClaim guess first.  if it's in the datastore and the location is inside it, we're done
-		if(cachedClaim != null && cachedClaim.inDataStore && cachedClaim.contains(location, true))
+	public Claim getClaimAt(Location location, Claim cachedClaim) {
+		return this.getClaimAt(location.getWorld(), location.getBlockX(), location.getBlockZ(), cachedClaim);
+	}
+
+	//same as above for a block position, so hot paths don't have to build a location for every block
+	public Claim getClaimAt(World world, int x, int z, Claim cachedClaim) {
+		//this is the hottest lookup, so it does what readClaims() does without allocating a lambda
+		long stamp = this.claimStampedLock.tryOptimisticRead();
+		if(stamp != 0) {
+			try {
+				Claim claim = this.findClaimAt(world, x, z, cachedClaim);
+				if(this.claimStampedLock.validate(stamp)) return claim;
+			} catch(RuntimeException ignored) {
+				//the lookup saw a half finished write, the locked read below settles it
+			}
+		}
+
+		this.claimLock.readLock().lock();
+		try {
+			return this.findClaimAt(world, x, z, cachedClaim);
+		} finally {
+			this.claimLock.readLock().unlock();
+		}
+	}
+
+	private Claim findClaimAt(World world, int x, int z, Claim cachedClaim) {
+		//check cachedClaim guess first.  if it's in the datastore and the position is inside it, we're done
+		if(cachedClaim != null && cachedClaim.inDataStore && cachedClaim.world.equals(world) && cachedClaim.contains(x, z, true))
 			return cachedClaim;
 
+		//most chunks are entirely inside one claim, which answers the lookup unless subdivisions are nearby
+		Claim coveringClaim = this.claimIndex.getCoveringClaim(world, x >> 4, z >> 4);
+		if(coveringClaim != null && coveringClaim.inDataStore && coveringClaim.getSubdivisionsAt(x, z) == null)
+			return coveringClaim;
+
 		//find a top level claim
-		Long chunkID = getChunkHash(location);
-		ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkID);
+		return findClaimAt(this.claimIndex.get(world, x >> 4, z >> 4), x, z);
+	}
+
+	//finds the claim or subdivision at a block position, given the top level claims touching its chunk
+	private static Claim findClaimAt(Claim[] claimsInChunk, int x, int z) {
 		if(claimsInChunk == null) return null;
 
 		for(Claim claim : claimsInChunk) {
-			if(claim.inDataStore && claim.contains(location, false)) {
-				//when we find a top level claim, if the location is in one of its subdivisions,
+			if(claim.inDataStore && claim.contains(x, z, false)) {
+				//when we find a top level claim, if the position is in one of its subdivisions,
 				//return the SUBDIVISION, not the top level claim
-				for(int j = 0; j < claim.children.size(); j++) {
-					Claim subdivision = claim.children.get(j);
-					if(subdivision.inDataStore && subdivision.contains(location, false))
-						return subdivision;
+				Claim[] subdivisions = claim.getSubdivisionsAt(x, z);
+				if(subdivisions != null) {
+					for(Claim subdivision : subdivisions) {
+						if(subdivision.inDataStore && subdivision.contains(x, z, false))
+							return subdivision;
+					}
 				}
 
 				return claim;
@@ -591,12 +1027,97 @@ public abstract class DataStore {
 		return null;
 	}
 
-	//finds a claim by ID
-	public synchronized Claim getClaim(long id) {
-		for(Claim claim : this.claims) {
-			if(claim.inDataStore && claim.getID() == id) return claim;
+	//finds the claims at many block positions at once, for events which touch lots of blocks
+	//the result lines up with the given coordinates and holds null for positions in the wilderness
+	//positions are grouped by chunk so each chunk's claims are looked up only once
+	public Claim[] getClaimsAt(World world, int[] xs, int[] zs) {
+		return this.readClaims(() -> {
+			Claim[] claims = new Claim[xs.length];
+			if(xs.length == 0) return claims;
+
+			int minChunkX = Integer.MAX_VALUE;
+			int minChunkZ = Integer.MAX_VALUE;
+			int maxChunkX = Integer.MIN_VALUE;
+			int maxChunkZ = Integer.MIN_VALUE;
+			for(int i = 0; i < xs.length; i++) {
+				minChunkX = Math.min(minChunkX, xs[i] >> 4);
+				minChunkZ = Math.min(minChunkZ, zs[i] >> 4);
+				maxChunkX = Math.max(maxChunkX, xs[i] >> 4);
+				maxChunkZ = Math.max(maxChunkZ, zs[i] >> 4);
+			}
+
+			//sort positions by chunk, packing each position's chunk (relative to the lowest one) above its index
+			//positions spread further than that are just visited in the order given
+			long[] order = new long[xs.length];
+			boolean sortable = (long) maxChunkX - minChunkX < 0x8000 && (long) maxChunkZ - minChunkZ < 0x10000;
+			for(int i = 0; i < xs.length; i++) {
+				long chunkKey = sortable ? (((long) ((xs[i] >> 4) - minChunkX) << 16) | ((zs[i] >> 4) - minChunkZ)) : 0;
+				order[i] = (chunkKey << 32) | i;
+			}
+			if(sortable) Arrays.sort(order);
+
+			Claim[] claimsInChunk = null;
+			Claim coveringClaim = null;
+			int currentChunkX = 0;
+			int currentChunkZ = 0;
+			boolean first = true;
+			Claim lastClaim = null;
+			for(long entry : order) {
+				int i = (int) entry;
+				int x = xs[i];
+				int z = zs[i];
+
+				if(first || (x >> 4) != currentChunkX || (z >> 4) != currentChunkZ) {
+					currentChunkX = x >> 4;
+					currentChunkZ = z >> 4;
+					claimsInChunk = this.claimIndex.get(world, currentChunkX, currentChunkZ);
+					coveringClaim = this.claimIndex.getCoveringClaim(world, currentChunkX, currentChunkZ);
+					if(coveringClaim != null && coveringClaim.getSubdivisionsAt(x, z) != null) {
+						coveringClaim = null;
+					}
+					first = false;
+				}
+
+				if(claimsInChunk == null) continue;
+
+				//the whole chunk belongs to a single claim without subdivisions in it
+				if(coveringClaim != null) {
+					claims[i] = coveringClaim;
+					continue;
+				}
+
+				//neighbouring blocks are usually in the same claim
+				if(lastClaim != null && lastClaim.contains(x, z, true)) {
+					claims[i] = lastClaim;
+				} else {
+					claims[i] = findClaimAt(claimsInChunk, x, z);
+					if(claims[i] != null) lastClaim = claims[i];
+				}
+			}
+
+			return claims;
+		});
+	}
+
+	//same as above for a list of blocks, which must all be in the given world
+	public Claim[] getClaimsAt(World world, List<Block> blocks) {
+		int[] xs = new int[blocks.size()];
+		int[] zs = new int[blocks.size()];
+		for(int i = 0; i < xs.length; i++) {
+			Block block = blocks.get(i);
+			xs[i] = block.getX();
+			zs[i] = block.getZ();
 		}
 
+		return this.getClaimsAt(world, xs, zs);
+	}
+
+	//finds a claim by ID
+	//subdivisions can be found this way too
+	public Claim getClaim(long id) {
+		Claim claim = this.idToClaimMap.get(id);
+		if(claim != null && claim.inDataStore) return claim;
+
 		return null;
 	}
 
@@ -607,22 +1128,28 @@ public abstract class DataStore {
 		return Collections.unmodifiableCollection(this.claims);
 	}
 
+	//chunk coordinates don't identify a world, so this returns matching claims from every world
+	//prefer getClaims(World, int, int) when the world is known
 	public Collection<Claim> getClaims(int chunkx, int chunkz) {
-		ArrayList<Claim> chunkClaims = this.chunksToClaimsMap.get(getChunkHash(chunkx, chunkz));
+		return Collections.unmodifiableCollection(this.claimIndex.getInAllWorlds(chunkx, chunkz));
+	}
+
+	public Collection<Claim> getClaims(World world, int chunkx, int chunkz) {
+		Claim[] chunkClaims = this.claimIndex.get(world, chunkx, chunkz);
 		if(chunkClaims != null) {
-			return Collections.unmodifiableCollection(chunkClaims);
+			return Collections.unmodifiableCollection(Arrays.asList(chunkClaims));
 		} else {
 			return Collections.unmodifiableCollection(new ArrayList<>());
 		}
 	}
 
 	//gets an almost-unique, persistent identifier for a chunk
-	public static Long getChunkHash(long chunkx, long chunkz) {
+	public static long getChunkHash(long chunkx, long chunkz) {
 		return (chunkz ^ (chunkx << 32));
 	}
 
 	//gets an almost-unique, persistent identifier for a chunk
-	public static Long getChunkHash(Location location) {
+	public static long getChunkHash(Location location) {
 		return getChunkHash(location.getBlockX() >> 4, location.getBlockZ() >> 4);
 	}
 
@@ -647,7 +1174,7 @@ public abstract class DataStore {
 	/*
 	 * Creates a claim and flags it as being new....throwing a create claim event;
 	 */
-	synchronized public CreateClaimResult createClaim(World world, int x1, int x2, int z1, int z2, UUID ownerID, Claim parent, Long id, Player creatingPlayer) {
+	public CreateClaimResult createClaim(World world, int x1, int x2, int z1, int z2, UUID ownerID, Claim parent, Long id, Player creatingPlayer) {
 		return createClaim(world, x1, x2, z1, z2, ownerID, parent, id, creatingPlayer, false);
 	}
 
@@ -662,91 +1189,126 @@ public abstract class DataStore {
 	//does NOT check a player has permission to create a claim, or enough claim blocks.
 	//does NOT check minimum claim size constraints
 	//does NOT visualize the new claim for any players
-	synchronized public CreateClaimResult createClaim(World world, int x1, int x2, int z1, int z2, UUID ownerID, Claim parent, Long id, Player creatingPlayer, boolean dryRun) {
-		CreateClaimResult result = new CreateClaimResult();
-
-		int smallx, bigx, smallz, bigz;
-
-		//determine small versus big inputs
-		if(x1 < x2) {
-			smallx = x1;
-			bigx = x2;
-		} else {
-			smallx = x2;
-			bigx = x1;
-		}
+	public CreateClaimResult createClaim(World world, int x1, int x2, int z1, int z2, UUID ownerID, Claim parent, Long id, Player creatingPlayer, boolean dryRun) {
+		this.beginClaimWrite();
+		try {
+			CreateClaimResult result = new CreateClaimResult();
 
-		if(z1 < z2) {
-			smallz = z1;
-			bigz = z2;
-		} else {
-			smallz = z2;
-			bigz = z1;
-		}
+			int smallx, bigx, smallz, bigz;
 
-		if(parent != null) {
-			Coordinate lesser = parent.lesserBoundaryCorner;
-			Coordinate greater = parent.greaterBoundaryCorner;
-			if(smallx < lesser.getX() || smallz < lesser.getZ() || bigx > greater.getX() || bigz > greater.getZ()) {
-				result.succeeded = false;
-				result.claim = parent;
-				return result;
+			//determine small versus big inputs
+			if(x1 < x2) {
+				smallx = x1;
+				bigx = x2;
+			} else {
+				smallx = x2;
+				bigx = x1;
 			}
-		}
 
-		//create a new claim instance (but don't save it, yet)
-		Claim newClaim = new Claim(
-				world,
-				new Coordinate(smallx, smallz),
-				new Coordinate(bigx, bigz),
-				ownerID,
-				new ArrayList<>(),
-				new ArrayList<>(),
-				new ArrayList<>(),
-				new ArrayList<>(),
-				id);
+			if(z1 < z2) {
+				smallz = z1;
+				bigz = z2;
+			} else {
+				smallz = z2;
+				bigz = z1;
+			}
 
-		newClaim.parent = parent;
+			if(parent != null) {
+				Coordinate lesser = parent.lesserBoundaryCorner;
+				Coordinate greater = parent.greaterBoundaryCorner;
+				if(smallx < lesser.getX() || smallz < lesser.getZ() || bigx > greater.getX() || bigz > greater.getZ()) {
+					result.succeeded = false;
+					result.claim = parent;
+					return result;
+				}
+			}
 
-		//ensure this new claim won't overlap any existing claims
-		ArrayList<Claim> claimsToCheck;
-		if(newClaim.parent != null) {
-			claimsToCheck = newClaim.parent.children;
-		} else {
-			claimsToCheck = this.claims;
-		}
+			//create a new claim instance (but don't save it, yet)
+			Claim newClaim = new Claim(
+					world,
+					new Coordinate(smallx, smallz),
+					new Coordinate(bigx, bigz),
+					ownerID,
+					new ArrayList<>(),
+					new ArrayList<>(),
+					new ArrayList<>(),
+					new ArrayList<>(),
+					id);
+
+			newClaim.parent = parent;
+
+			//ensure this new claim won't overlap any existing claims
+			//top level claims only need to be checked against the claims indexed in the chunks the new claim would cover
+			Collection<Claim> claimsToCheck;
+			if(newClaim.parent != null) {
+				claimsToCheck = newClaim.parent.children;
+			} else {
+				claimsToCheck = this.claimIndex.get(world, smallx >> 4, smallz >> 4, bigx >> 4, bigz >> 4);
+			}
 
-		for(Claim otherClaim : claimsToCheck) {
-			//if we find an existing claim which will be overlapped
-			if(!otherClaim.id.equals(newClaim.id) && otherClaim.inDataStore && otherClaim.overlaps(newClaim)) {
-				//result = fail, return conflicting claim
+			for(Claim otherClaim : claimsToCheck) {
+				//if we find an existing claim which will be overlapped
+				if(!otherClaim.id.equals(newClaim.id) && otherClaim.inDataStore && otherClaim.overlaps(newClaim)) {
+					//result = fail, return conflicting claim
+					result.succeeded = false;
+					result.claim = otherClaim;
+					return result;
+				}
+			}
+			if(dryRun) {
+				// since this is a dry run, just return the unsaved claim as is.
+				result.succeeded = true;
+				result.claim = newClaim;
+				return result;
+			}
+			assignClaimID(newClaim); // assign a claim ID before calling event, in case a plugin wants to know the ID.
+			ClaimCreatedEvent event = new ClaimCreatedEvent(newClaim, creatingPlayer);
+			Bukkit.getPluginManager().callEvent(event);
+			if(event.isCancelled()) {
 				result.succeeded = false;
-				result.claim = otherClaim;
+				result.claim = null;
 				return result;
+
 			}
-		}
-		if(dryRun) {
-			// since this is a dry run, just return the unsaved claim as is.
+			//otherwise add this new claim to the data store to make it effective
+			this.addClaim(newClaim, true);
+
+			//then return success along with reference to new claim
 			result.succeeded = true;
 			result.claim = newClaim;
 			return result;
+		} finally {
+			this.endClaimWrite();
 		}
-		assignClaimID(newClaim); // assign a claim ID before calling event, in case a plugin wants to know the ID.
-		ClaimCreatedEvent event = new ClaimCreatedEvent(newClaim, creatingPlayer);
-		Bukkit.getPluginManager().callEvent(event);
-		if(event.isCancelled()) {
-			result.succeeded = false;
-			result.claim = null;
-			return result;
+	}
 
-		}
-		//otherwise add this new claim to the data store to make it effective
-		this.addClaim(newClaim, true);
+	//finds every top level claim which overlaps a rectangle, given by its lesser and greater corners
+	//unlike createClaim(), which stops at the first conflict, this reports all of them
+	public List<Claim> findOverlapping(World world, Coordinate lesserCorner, Coordinate greaterCorner) {
+		return new ArrayList<>(this.getClaimsInRegion(world, lesserCorner.getX(), lesserCorner.getZ(), greaterCorner.getX(), greaterCorner.getZ()));
+	}
 
-		//then return success along with reference to new claim
-		result.succeeded = true;
-		result.claim = newClaim;
-		return result;
+	//gets every top level claim overlapping a rectangle of blocks, bounds included
+	//works from block coordinates alone, so it never loads or generates any chunks
+	public Set<Claim> getClaimsInRegion(World world, int minX, int minZ, int maxX, int maxZ) {
+		return this.readClaims(() -> {
+			Set<Claim> claims = new LinkedHashSet<>();
+
+			int smallx = Math.min(minX, maxX);
+			int smallz = Math.min(minZ, maxZ);
+			int bigx = Math.max(minX, maxX);
+			int bigz = Math.max(minZ, maxZ);
+			Coordinate lesser = new Coordinate(smallx, smallz);
+			Coordinate greater = new Coordinate(bigx, bigz);
+
+			for(Claim claim : this.claimIndex.get(world, smallx >> 4, smallz >> 4, bigx >> 4, bigz >> 4)) {
+				if(claim.inDataStore && claim.overlaps(lesser, greater)) {
+					claims.add(claim);
+				}
+			}
+
+			return claims;
+		});
 	}
 
 	//saves changes to player data to secondary storage.  MUST be called after you're done making changes, otherwise a reload will lose them
@@ -760,7 +1322,7 @@ public abstract class DataStore {
 
 	//saves changes to player data to secondary storage.  MUST be called after you're done making changes, otherwise a reload will lose them
 	public void savePlayerData(UUID playerID, PlayerData playerData) {
-		new SavePlayerDataThread(playerID, playerData).start();
+		GriefPreventionLight.instance.storageExecutor.execute(playerID, new SavePlayerDataTask(playerID, playerData));
 	}
 
 	public void asyncSavePlayerData(UUID playerID, PlayerData playerData) {
@@ -800,41 +1362,64 @@ public abstract class DataStore {
 	abstract void overrideSavePlayerData(UUID playerID, PlayerData playerData);
 
 	//deletes all claims owned by a player
-	synchronized public void deleteClaimsForPlayer(UUID playerID, boolean releasePets) {
-		//make a list of the player's claims
-		ArrayList<Claim> claimsToDelete = new ArrayList<>();
-		for(Claim claim : this.claims) {
-			if(Objects.equals(playerID, claim.ownerID))
-				claimsToDelete.add(claim);
-		}
+	public void deleteClaimsForPlayer(UUID playerID, boolean releasePets) {
+		this.beginClaimWrite();
+		try {
+			//make a list of the player's claims
+			ArrayList<Claim> claimsToDelete;
+			if(playerID != null) {
+				claimsToDelete = this.getClaimsOwnedBy(playerID);
+			} else {
+				//administrative claims aren't indexed by owner
+				claimsToDelete = new ArrayList<>();
+				for(Claim claim : this.claims) {
+					if(claim.ownerID == null)
+						claimsToDelete.add(claim);
+				}
+			}
 
-		//delete them one by one
-		for(Claim claim : claimsToDelete) {
+			//delete them one by one
+			for(Claim claim : claimsToDelete) {
 
-			this.deleteClaim(claim, releasePets);
+				this.deleteClaim(claim, releasePets);
+			}
+		} finally {
+			this.endClaimWrite();
 		}
 	}
 
 	//tries to resize a claim
 	//see CreateClaim() for details on return value
-	synchronized public CreateClaimResult resizeClaim(Claim claim, int newx1, int newx2, int newz1, int newz2, Player resizingPlayer) {
-		//try to create this new claim, ignoring the original when checking for overlap
-		CreateClaimResult result = this.createClaim(claim.world, newx1, newx2, newz1, newz2, claim.ownerID, claim.parent, claim.id, resizingPlayer, true);
+	public CreateClaimResult resizeClaim(Claim claim, int newx1, int newx2, int newz1, int newz2, Player resizingPlayer) {
+		this.beginClaimWrite();
+		try {
+			//try to create this new claim, ignoring the original when checking for overlap
+			CreateClaimResult result = this.createClaim(claim.world, newx1, newx2, newz1, newz2, claim.ownerID, claim.parent, claim.id, resizingPlayer, true);
+
+			//if succeeded
+			if(result.succeeded) {
+				//only top level claims are in the chunk cache, subdivisions are indexed by their parent
+				if(claim.parent == null) {
+					removeFromChunkClaimMap(claim); // remove the old boundary from the chunk cache
+				}
+				// copy the boundary from the claim created in the dry run of createClaim() to our existing claim
+				claim.lesserBoundaryCorner = result.claim.lesserBoundaryCorner;
+				claim.greaterBoundaryCorner = result.claim.greaterBoundaryCorner;
+				result.claim = claim;
+				if(claim.parent == null) {
+					addToChunkClaimMap(claim); // add the new boundary to the chunk cache
+				} else {
+					claim.parent.invalidateSubdivisionIndex();
+				}
 
-		//if succeeded
-		if(result.succeeded) {
-			removeFromChunkClaimMap(claim); // remove the old boundary from the chunk cache
-			// copy the boundary from the claim created in the dry run of createClaim() to our existing claim
-			claim.lesserBoundaryCorner = result.claim.lesserBoundaryCorner;
-			claim.greaterBoundaryCorner = result.claim.greaterBoundaryCorner;
-			result.claim = claim;
-			addToChunkClaimMap(claim); // add the new boundary to the chunk cache
+				//save those changes
+				this.saveClaim(result.claim);
+			}
 
-			//save those changes
-			this.saveClaim(result.claim);
+			return result;
+		} finally {
+			this.endClaimWrite();
 		}
-
-		return result;
 	}
 
 	void resizeClaimWithChecks(Player player, PlayerData playerData, int newx1, int newx2, int newz1, int newz2) {
@@ -1204,7 +1789,7 @@ public abstract class DataStore {
 		defaults.put(id.name(), message);
 	}
 
-	synchronized public String getMessage(Messages messageID, String... args) {
+	public String getMessage(Messages messageID, String... args) {
 		String message = messages[messageID.ordinal()];
 
 		for(int i = 0; i < args.length; i++) {
@@ -1249,11 +1834,11 @@ public abstract class DataStore {
 
 	abstract void close();
 
-	private class SavePlayerDataThread extends Thread {
+	private class SavePlayerDataTask implements Runnable {
 		private final UUID playerID;
 		private final PlayerData playerData;
 
-		SavePlayerDataThread(UUID playerID, PlayerData playerData) {
+		SavePlayerDataTask(UUID playerID, PlayerData playerData) {
 			this.playerID = playerID;
 			this.playerData = playerData;
 		}
@@ -1268,27 +1853,10 @@ public abstract class DataStore {
 
 	//gets all the claims "near" a location
 	Set<Claim> getNearbyClaims(Location location) {
-		Set<Claim> claims = new HashSet<>();
-
-		Chunk lesserChunk = location.getWorld().getChunkAt(location.subtract(150, 0, 150));
-		Chunk greaterChunk = location.getWorld().getChunkAt(location.add(300, 0, 300));
-
-		for(int chunk_x = lesserChunk.getX(); chunk_x <= greaterChunk.getX(); chunk_x++) {
-			for(int chunk_z = lesserChunk.getZ(); chunk_z <= greaterChunk.getZ(); chunk_z++) {
-				Chunk chunk = location.getWorld().getChunkAt(chunk_x, chunk_z);
-				Long chunkID = getChunkHash(chunk.getBlock(0, 0, 0).getLocation());
-				ArrayList<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkID);
-				if(claimsInChunk != null) {
-					for(Claim claim : claimsInChunk) {
-						if(claim.inDataStore && location.getWorld().equals(claim.world)) {
-							claims.add(claim);
-						}
-					}
-				}
-			}
-		}
+		int x = location.getBlockX();
+		int z = location.getBlockZ();
 
-		return claims;
+		return this.getClaimsInRegion(location.getWorld(), x - 150, z - 150, x + 150, z + 150);
 	}
 
 	//deletes all the land claims in a specified world
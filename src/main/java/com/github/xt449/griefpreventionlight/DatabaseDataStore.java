@@ -32,11 +32,17 @@ import java.util.*;
 
 //manages data stored in the file system
 public class DatabaseDataStore extends DataStore {
-	private Connection databaseConnection = null;
+	//how long a caller waits for a free connection before giving up
+	private static final long CONNECTION_WAIT_MILLIS = 30000;
 
-	private final String databaseUrl;
-	private final String userName;
-	private final String password;
+	//queue keys for claims, groups and the next claim ID, players are keyed by their UUIDs
+	private static final String CLAIM_KEY_PREFIX = "claim ";
+	private static final String GROUP_KEY_PREFIX = "group ";
+	private static final String NEXT_CLAIM_ID_KEY = "next claim ID";
+
+	//connections are shared through a pool, and all changes are written by the writer's own thread
+	private final ConnectionPool connectionPool;
+	private final DatabaseWriter databaseWriter;
 
 	private String updateNameSQL;
 	private String insertClaimSQL;
@@ -51,12 +57,46 @@ public class DatabaseDataStore extends DataStore {
 	private String deleteSchemaVersionSQL;
 	private String selectSchemaVersionSQL;
 
-	DatabaseDataStore(String url, String userName, String password) throws Exception {
-		this.databaseUrl = url;
-		this.userName = userName;
-		this.password = password;
+	//a player's claim blocks waiting to be written, kept so a reload before then doesn't read stale values
+	private static final class PlayerDataWrite implements DatabaseWriter.Write {
+		final DatabaseDataStore dataStore;
+		final String playerID;
+		final String dateString;
+		final int accruedClaimBlocks;
+		final int bonusClaimBlocks;
+
+		PlayerDataWrite(DatabaseDataStore dataStore, String playerID, String dateString, int accruedClaimBlocks, int bonusClaimBlocks) {
+			this.dataStore = dataStore;
+			this.playerID = playerID;
+			this.dateString = dateString;
+			this.accruedClaimBlocks = accruedClaimBlocks;
+			this.bonusClaimBlocks = bonusClaimBlocks;
+		}
+
+		@Override
+		public void run(Connection connection) throws SQLException {
+			this.dataStore.replacePlayerDataRow(connection, this.playerID, this.dateString, this.accruedClaimBlocks, this.bonusClaimBlocks);
+		}
+	}
+
+	DatabaseDataStore(String url, String userName, String password, int maxConnections) throws Exception {
+		//set username/pass properties
+		Properties connectionProps = new Properties();
+		connectionProps.put("user", userName);
+		connectionProps.put("password", password);
+		connectionProps.put("autoReconnect", "true");
+		connectionProps.put("maxReconnects", String.valueOf(Integer.MAX_VALUE));
 
-		this.initialize();
+		//loading holds one connection while it reads and writes the schema version on another, so never fewer than two
+		this.connectionPool = new ConnectionPool(url, connectionProps, Math.max(2, maxConnections), CONNECTION_WAIT_MILLIS);
+		this.databaseWriter = new DatabaseWriter(this.connectionPool);
+
+		try {
+			this.initialize();
+		} catch(Exception e) {
+			this.close();
+			throw e;
+		}
 	}
 
 	@Override
@@ -69,16 +109,32 @@ public class DatabaseDataStore extends DataStore {
 			throw e;
 		}
 
+		Connection connection;
 		try {
-			this.refreshDataConnection();
+			connection = this.connectionPool.borrow();
 		} catch(Exception e2) {
 			GriefPreventionLight.AddLogEntry("ERROR: Unable to connect to database.  Check your config file settings.");
 			throw e2;
 		}
 
+		try {
+			connection = this.loadData(connection);
+		} catch(Exception e) {
+			this.connectionPool.discard(connection);
+			throw e;
+		}
+
+		this.connectionPool.release(connection);
+
+		super.initialize();
+	}
+
+	//creates the tables and loads everything into memory
+	//returns the connection it finished with, which isn't the one it was given if that one had to be replaced
+	private Connection loadData(Connection connection) throws Exception {
 		try {
 			//ensure the data tables exist
-			Statement statement = databaseConnection.createStatement();
+			Statement statement = connection.createStatement();
 
 			statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_nextclaimid (nextid INT(15));");
 
@@ -120,7 +176,7 @@ public class DatabaseDataStore extends DataStore {
 		this.selectSchemaVersionSQL = "SELECT * FROM griefprevention_schemaversion;";
 
 		//load group data into memory
-		Statement statement = databaseConnection.createStatement();
+		Statement statement = connection.createStatement();
 		ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_playerdata;");
 
 		while(results.next()) {
@@ -143,20 +199,20 @@ public class DatabaseDataStore extends DataStore {
 		//if there's nothing yet, add it
 		if(!results.next()) {
 			statement.execute("INSERT INTO griefprevention_nextclaimid VALUES(0);");
-			this.nextClaimID = (long) 0;
+			this.nextClaimIDStored(0);
 		}
 
 		//otherwise load it
 		else {
-			this.nextClaimID = results.getLong("nextid");
+			this.nextClaimIDStored(results.getLong("nextid"));
 		}
 
 		if(this.getSchemaVersion() == 0) {
 			try {
-				this.refreshDataConnection();
+				connection = this.connectionPool.refresh(connection);
 
 				//pull ALL player data from the database
-				statement = this.databaseConnection.createStatement();
+				statement = connection.createStatement();
 				results = statement.executeQuery("SELECT * FROM griefprevention_playerdata;");
 
 				//make a list of changes to be made
@@ -201,10 +257,10 @@ public class DatabaseDataStore extends DataStore {
 				}
 
 				//refresh data connection in case data migration took a long time
-				this.refreshDataConnection();
+				connection = this.connectionPool.refresh(connection);
 
 				for(String name : changes.keySet()) {
-					try(PreparedStatement updateStmnt = this.databaseConnection.prepareStatement(this.getUpdateNameSQL())) {
+					try(PreparedStatement updateStmnt = connection.prepareStatement(this.getUpdateNameSQL())) {
 						updateStmnt.setString(1, changes.get(name).toString());
 						updateStmnt.setString(2, name);
 						updateStmnt.executeUpdate();
@@ -221,7 +277,7 @@ public class DatabaseDataStore extends DataStore {
 		}
 
 		if(this.getSchemaVersion() <= 2) {
-			statement = this.databaseConnection.createStatement();
+			statement = connection.createStatement();
 			statement.execute("ALTER TABLE griefprevention_claimdata ADD inheritNothing BOOLEAN DEFAULT 0 AFTER managers;");
 		}
 
@@ -230,8 +286,8 @@ public class DatabaseDataStore extends DataStore {
 		results = statement.executeQuery("SELECT * FROM griefprevention_claimdata;");
 
 		ArrayList<Claim> claimsToRemove = new ArrayList<>();
-		ArrayList<Claim> subdivisionsToLoad = new ArrayList<>();
-		List<World> validWorlds = Bukkit.getServer().getWorlds();
+		LinkedHashMap<Claim, Long> subdivisionsToLoad = new LinkedHashMap<>();
+		Map<String, World> worldsByName = getWorldsByName();
 
 		while(results.next()) {
 			try {
@@ -246,9 +302,9 @@ public class DatabaseDataStore extends DataStore {
 				String lesserCornerString = "(location not available)";
 				try {
 					lesserCornerString = results.getString("lessercorner");
-					lesserBoundaryCorner = this.locationFromString(lesserCornerString, validWorlds);
+					lesserBoundaryCorner = this.locationFromString(lesserCornerString, worldsByName);
 					String greaterCornerString = results.getString("greatercorner");
-					greaterBoundaryCorner = this.locationFromString(greaterCornerString, validWorlds);
+					greaterBoundaryCorner = this.locationFromString(greaterCornerString, worldsByName);
 				} catch(Exception e) {
 					if(e.getMessage() != null && e.getMessage().contains("World not found")) {
 						GriefPreventionLight.AddLogEntry("Failed to load a claim (ID:" + claimID + ") because its world isn't loaded (yet?).  Please delete the claim or contact the GriefPrevention developer with information about which plugin(s) you're using to load or create worlds.  " + lesserCornerString);
@@ -300,7 +356,7 @@ public class DatabaseDataStore extends DataStore {
 					this.addClaim(claim, false);
 				} else {
 					//subdivision
-					subdivisionsToLoad.add(claim);
+					subdivisionsToLoad.put(claim, parentId);
 				}
 			} catch(SQLException e) {
 				GriefPreventionLight.AddLogEntry("Unable to load a claim.  Details: " + e.getMessage() + " ... " + results.toString());
@@ -309,9 +365,17 @@ public class DatabaseDataStore extends DataStore {
 		}
 
 		//add subdivisions to their parent claims
-		for(Claim childClaim : subdivisionsToLoad) {
-			//find top level claim parent
-			Claim topLevelClaim = this.getClaimAt(childClaim.lesserBoundaryCorner.toLocation(childClaim.world), null);
+		for(Map.Entry<Claim, Long> subdivisionEntry : subdivisionsToLoad.entrySet()) {
+			Claim childClaim = subdivisionEntry.getKey();
+
+			//find top level claim parent by its ID, falling back to the claim at the subdivision's corner
+			Claim topLevelClaim = this.getClaim(subdivisionEntry.getValue());
+			if(topLevelClaim == null) {
+				topLevelClaim = this.getClaimAt(childClaim.lesserBoundaryCorner.toLocation(childClaim.world), null);
+				if(topLevelClaim != null && topLevelClaim.parent != null) {
+					topLevelClaim = topLevelClaim.parent;
+				}
+			}
 
 			if(topLevelClaim == null) {
 				claimsToRemove.add(childClaim);
@@ -321,8 +385,7 @@ public class DatabaseDataStore extends DataStore {
 
 			//add this claim to the list of children of the current top level claim
 			childClaim.parent = topLevelClaim;
-			topLevelClaim.children.add(childClaim);
-			childClaim.inDataStore = true;
+			this.addClaim(childClaim, false);
 		}
 
 		for(Claim claim : claimsToRemove) {
@@ -330,37 +393,21 @@ public class DatabaseDataStore extends DataStore {
 		}
 
 		if(this.getSchemaVersion() <= 2) {
-			this.refreshDataConnection();
-			statement = this.databaseConnection.createStatement();
+			connection = this.connectionPool.refresh(connection);
+			statement = connection.createStatement();
 			statement.execute("DELETE FROM griefprevention_claimdata WHERE id='-1';");
 		}
 
-		super.initialize();
+		return connection;
 	}
 
 	@Override
 	synchronized void writeClaimToStorage(Claim claim)  //see datastore.cs.  this will ALWAYS be a top level claim
 	{
-		try {
-			this.refreshDataConnection();
-
-			//wipe out any existing data about this claim
-			this.deleteClaimFromSecondaryStorage(claim);
-
-			//write claim data to the database
-			this.writeClaimData(claim);
-		} catch(SQLException e) {
-			GriefPreventionLight.AddLogEntry("Unable to save data for claim at " + claim.world.getName() + claim.lesserBoundaryCorner + ".  Details:");
-			GriefPreventionLight.AddLogEntry(e.getMessage());
-		}
-	}
-
-	//actually writes claim data to the database
-	synchronized private void writeClaimData(Claim claim) throws SQLException {
+		//read everything now, the claim may change again before the writer gets to it
 		String lesserCornerString = claim.world.getName() + claim.lesserBoundaryCorner;
 		String greaterCornerString = claim.world.getName() + claim.greaterBoundaryCorner;
-		String owner = "";
-		if(claim.ownerID != null) owner = claim.ownerID.toString();
+		String owner = claim.ownerID == null ? "" : claim.ownerID.toString();
 
 		ArrayList<String> builders = new ArrayList<>();
 		ArrayList<String> containers = new ArrayList<>();
@@ -374,54 +421,73 @@ public class DatabaseDataStore extends DataStore {
 		String accessorsString = this.storageStringBuilder(accessors);
 		String managersString = this.storageStringBuilder(managers);
 		boolean inheritNothing = claim.getSubclaimRestrictions();
+		long claimID = claim.id;
 		long parentId = claim.parent == null ? -1 : claim.parent.id;
 
-		try(PreparedStatement insertStmt = this.databaseConnection.prepareStatement(this.getInsertClaimSQL())) {
-
-			insertStmt.setLong(1, claim.id);
-			insertStmt.setString(2, owner);
-			insertStmt.setString(3, lesserCornerString);
-			insertStmt.setString(4, greaterCornerString);
-			insertStmt.setString(5, buildersString);
-			insertStmt.setString(6, containersString);
-			insertStmt.setString(7, accessorsString);
-			insertStmt.setString(8, managersString);
-			insertStmt.setBoolean(9, inheritNothing);
-			insertStmt.setLong(10, parentId);
-			insertStmt.executeUpdate();
-		} catch(SQLException e) {
-			GriefPreventionLight.AddLogEntry("Unable to save data for claim at " + claim.world.getName() + claim.lesserBoundaryCorner + ".  Details:");
-			GriefPreventionLight.AddLogEntry(e.getMessage());
-		}
+		this.databaseWriter.write(CLAIM_KEY_PREFIX + claimID, connection -> {
+			//wipe out any existing data about this claim
+			this.deleteClaimRow(connection, claimID);
+
+			//write claim data to the database
+			try(PreparedStatement insertStmt = connection.prepareStatement(this.getInsertClaimSQL())) {
+				insertStmt.setLong(1, claimID);
+				insertStmt.setString(2, owner);
+				insertStmt.setString(3, lesserCornerString);
+				insertStmt.setString(4, greaterCornerString);
+				insertStmt.setString(5, buildersString);
+				insertStmt.setString(6, containersString);
+				insertStmt.setString(7, accessorsString);
+				insertStmt.setString(8, managersString);
+				insertStmt.setBoolean(9, inheritNothing);
+				insertStmt.setLong(10, parentId);
+				insertStmt.executeUpdate();
+			}
+		});
 	}
 
 	//deletes a claim from the database
 	@Override
 	synchronized void deleteClaimFromSecondaryStorage(Claim claim) {
-		try(PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(this.getDeleteClaimSQL())) {
-			deleteStmnt.setLong(1, claim.id);
+		long claimID = claim.id;
+		this.databaseWriter.write(CLAIM_KEY_PREFIX + claimID, connection -> this.deleteClaimRow(connection, claimID));
+	}
+
+	private void deleteClaimRow(Connection connection, long claimID) throws SQLException {
+		try(PreparedStatement deleteStmnt = connection.prepareStatement(this.getDeleteClaimSQL())) {
+			deleteStmnt.setLong(1, claimID);
 			deleteStmnt.executeUpdate();
-		} catch(SQLException e) {
-			GriefPreventionLight.AddLogEntry("Unable to delete data for claim " + claim.id + ".  Details:");
-			GriefPreventionLight.AddLogEntry(e.getMessage());
-			e.printStackTrace();
 		}
 	}
 
+	//still a synchronous read, callers need the claim blocks right away and the database may be shared with other servers, so can't be cached
+	//online players are read ahead on the login thread, so this only reaches the main thread for players who are offline
 	@Override
 	PlayerData getPlayerDataFromStorage(UUID playerID) {
 		PlayerData playerData = new PlayerData();
 		playerData.playerID = playerID;
 
-		try(PreparedStatement selectStmnt = this.databaseConnection.prepareStatement(this.getGetPlayerDataSQL())) {
-			selectStmnt.setString(1, playerID.toString());
-			ResultSet results = selectStmnt.executeQuery();
+		//a save which hasn't been written yet is newer than what's in the database
+		DatabaseWriter.Write pendingWrite = this.databaseWriter.getPending(playerID.toString());
+		if(pendingWrite instanceof PlayerDataWrite) {
+			playerData.setAccruedClaimBlocks(((PlayerDataWrite) pendingWrite).accruedClaimBlocks);
+			playerData.setBonusClaimBlocks(((PlayerDataWrite) pendingWrite).bonusClaimBlocks);
+			return playerData;
+		}
 
-			//if data for this player exists, use it
-			if(results.next()) {
-				playerData.setAccruedClaimBlocks(results.getInt("accruedblocks"));
-				playerData.setBonusClaimBlocks(results.getInt("bonusblocks"));
-			}
+		try {
+			this.connectionPool.withConnection(connection -> {
+				try(PreparedStatement selectStmnt = connection.prepareStatement(this.getGetPlayerDataSQL())) {
+					selectStmnt.setString(1, playerID.toString());
+					ResultSet results = selectStmnt.executeQuery();
+
+					//if data for this player exists, use it
+					if(results.next()) {
+						playerData.setAccruedClaimBlocks(results.getInt("accruedblocks"));
+						playerData.setBonusClaimBlocks(results.getInt("bonusblocks"));
+					}
+				}
+				return null;
+			});
 		} catch(SQLException e) {
 			StringWriter errors = new StringWriter();
 			e.printStackTrace(new PrintWriter(errors));
@@ -437,118 +503,82 @@ public class DatabaseDataStore extends DataStore {
 		//never save data for the "administrative" account.  an empty string for player name indicates administrative account
 		if(playerID == null) return;
 
-		this.savePlayerData(playerID.toString(), playerData);
-	}
+		OfflinePlayer player = Bukkit.getOfflinePlayer(playerID);
+
+		SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		String dateString = sqlFormat.format(new Date(player.getLastPlayed()));
 
-	private void savePlayerData(String playerID, PlayerData playerData) {
-		try(PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(this.getDeletePlayerDataSQL());
-		    PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(this.getInsertPlayerDataSQL())) {
-			OfflinePlayer player = Bukkit.getOfflinePlayer(UUID.fromString(playerID));
+		this.databaseWriter.write(playerID.toString(), new PlayerDataWrite(this, playerID.toString(), dateString, playerData.getAccruedClaimBlocks(), playerData.getBonusClaimBlocks()));
+	}
 
-			SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-			String dateString = sqlFormat.format(new Date(player.getLastPlayed()));
-			deleteStmnt.setString(1, playerID);
+	//replaces a row in the player data table, which holds both players and groups
+	private void replacePlayerDataRow(Connection connection, String name, String dateString, int accruedClaimBlocks, int bonusClaimBlocks) throws SQLException {
+		try(PreparedStatement deleteStmnt = connection.prepareStatement(this.getDeletePlayerDataSQL());
+		    PreparedStatement insertStmnt = connection.prepareStatement(this.getInsertPlayerDataSQL())) {
+			deleteStmnt.setString(1, name);
 			deleteStmnt.executeUpdate();
 
-			insertStmnt.setString(1, playerID);
+			insertStmnt.setString(1, name);
 			insertStmnt.setString(2, dateString);
-			insertStmnt.setInt(3, playerData.getAccruedClaimBlocks());
-			insertStmnt.setInt(4, playerData.getBonusClaimBlocks());
+			insertStmnt.setInt(3, accruedClaimBlocks);
+			insertStmnt.setInt(4, bonusClaimBlocks);
 			insertStmnt.executeUpdate();
-		} catch(SQLException e) {
-			StringWriter errors = new StringWriter();
-			e.printStackTrace(new PrintWriter(errors));
-			GriefPreventionLight.AddLogEntry(playerID + " " + errors.toString(), CustomLogEntryTypes.Exception);
 		}
 	}
 
-	@Override
-	synchronized void incrementNextClaimID() {
-		this.setNextClaimID(this.nextClaimID + 1);
-	}
-
-	//sets the next claim ID.  used by incrementNextClaimID() above, and also while migrating data from a flat file data store
+	//sets the next claim ID.  used while migrating data from a flat file data store
 	synchronized void setNextClaimID(long nextID) {
-		this.nextClaimID = nextID;
+		this.writeNextClaimIDToStorage(nextID);
+		this.nextClaimIDStored(nextID);
+	}
 
-		try(PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(this.getDeleteNextClaimIdSQL());
-		    PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(this.getInsertNextClaimIdSQL())) {
-			deleteStmnt.execute();
-			insertStmnt.setLong(1, nextID);
-			insertStmnt.executeUpdate();
-		} catch(SQLException e) {
-			GriefPreventionLight.AddLogEntry("Unable to set next claim ID to " + nextID + ".  Details:");
-			GriefPreventionLight.AddLogEntry(e.getMessage());
-		}
+	@Override
+	synchronized void writeNextClaimIDToStorage(long nextID) {
+		this.databaseWriter.write(NEXT_CLAIM_ID_KEY, connection -> {
+			try(PreparedStatement deleteStmnt = connection.prepareStatement(this.getDeleteNextClaimIdSQL());
+			    PreparedStatement insertStmnt = connection.prepareStatement(this.getInsertNextClaimIdSQL())) {
+				deleteStmnt.execute();
+				insertStmnt.setLong(1, nextID);
+				insertStmnt.executeUpdate();
+			}
+		});
 	}
 
 	//updates the database with a group's bonus blocks
 	@Override
 	synchronized void saveGroupBonusBlocks(String groupName, int currentValue) {
 		//group bonus blocks are stored in the player data table, with player name = $groupName
-		try(PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(this.getDeleteGroupBonusSQL());
-		    PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(this.getInsertPlayerDataSQL())) {
-			SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-			String dateString = sqlFormat.format(new Date());
-			deleteStmnt.setString(1, '$' + groupName);
-			deleteStmnt.executeUpdate();
+		SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		String dateString = sqlFormat.format(new Date());
 
-			insertStmnt.setString(1, '$' + groupName);
-			insertStmnt.setString(2, dateString);
-			insertStmnt.setInt(3, 0);
-			insertStmnt.setInt(4, currentValue);
-			insertStmnt.executeUpdate();
-		} catch(SQLException e) {
-			GriefPreventionLight.AddLogEntry("Unable to save data for group " + groupName + ".  Details:");
-			GriefPreventionLight.AddLogEntry(e.getMessage());
-		}
+		this.databaseWriter.write(GROUP_KEY_PREFIX + groupName, connection -> this.replacePlayerDataRow(connection, '$' + groupName, dateString, 0, currentValue));
 	}
 
 	@Override
 	synchronized void close() {
-		if(this.databaseConnection != null) {
-			try {
-				if(!this.databaseConnection.isClosed()) {
-					this.databaseConnection.close();
-				}
-			} catch(SQLException e) {
-			}
-		}
-
-		this.databaseConnection = null;
-	}
-
-	private synchronized void refreshDataConnection() throws SQLException {
-		if(this.databaseConnection == null || !this.databaseConnection.isValid(3)) {
-			if(this.databaseConnection != null && !this.databaseConnection.isClosed()) {
-				this.databaseConnection.close();
-			}
-
-			//set username/pass properties
-			Properties connectionProps = new Properties();
-			connectionProps.put("user", this.userName);
-			connectionProps.put("password", this.password);
-			connectionProps.put("autoReconnect", "true");
-			connectionProps.put("maxReconnects", String.valueOf(Integer.MAX_VALUE));
-
-			//establish connection
-			this.databaseConnection = DriverManager.getConnection(this.databaseUrl, connectionProps);
-		}
+		//write out everything still queued before the connections go away
+		this.databaseWriter.shutdown(GriefPreventionLight.instance.config_advanced_storageShutdownTimeoutSeconds);
+		this.connectionPool.close();
 	}
 
 	@Override
 	protected int getSchemaVersionFromStorage() {
-		try(PreparedStatement selectStmnt = this.databaseConnection.prepareStatement(this.getSelectSchemaVersionSQL())) {
-			ResultSet results = selectStmnt.executeQuery();
+		try {
+			Integer version = this.connectionPool.withConnection(connection -> {
+				try(PreparedStatement selectStmnt = connection.prepareStatement(this.getSelectSchemaVersionSQL())) {
+					ResultSet results = selectStmnt.executeQuery();
+					return results.next() ? results.getInt("version") : null;
+				}
+			});
 
 			//if there's nothing yet, assume 0 and add it
-			if(!results.next()) {
+			if(version == null) {
 				this.setSchemaVersion(0);
 				return 0;
 			}
 			//otherwise return the value that's in the table
 			else {
-				return results.getInt("version");
+				return version;
 			}
 		} catch(SQLException e) {
 			GriefPreventionLight.AddLogEntry("Unable to retrieve schema version from database.  Details:");
@@ -560,12 +590,18 @@ public class DatabaseDataStore extends DataStore {
 
 	@Override
 	protected void updateSchemaVersionInStorage(int versionToSet) {
-		try(PreparedStatement deleteStmnt = this.databaseConnection.prepareStatement(this.getDeleteSchemaVersionSQL());
-		    PreparedStatement insertStmnt = this.databaseConnection.prepareStatement(this.getInsertSchemaVerSQL())) {
-			deleteStmnt.execute();
+		//written right away rather than queued, loading reads it straight back
+		try {
+			this.connectionPool.withConnection(connection -> {
+				try(PreparedStatement deleteStmnt = connection.prepareStatement(this.getDeleteSchemaVersionSQL());
+				    PreparedStatement insertStmnt = connection.prepareStatement(this.getInsertSchemaVerSQL())) {
+					deleteStmnt.execute();
 
-			insertStmnt.setInt(1, versionToSet);
-			insertStmnt.executeUpdate();
+					insertStmnt.setInt(1, versionToSet);
+					insertStmnt.executeUpdate();
+				}
+				return null;
+			});
 		} catch(SQLException e) {
 			GriefPreventionLight.AddLogEntry("Unable to set next schema version to " + versionToSet + ".  Details:");
 			GriefPreventionLight.AddLogEntry(e.getMessage());
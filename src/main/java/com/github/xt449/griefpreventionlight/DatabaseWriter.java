@@ -0,0 +1,216 @@
+package com.github.xt449.griefpreventionlight;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//writes the database store's changes on a thread of its own, so saving never waits on the database
+//changes are queued by key, e.g. one claim or one player, and a change queued while an older one for the same key is still waiting replaces it
+//the writer takes everything waiting at once and writes each change in its own transaction, on a connection from the pool
+//if the database can't be reached, changes stay queued and are tried again a few seconds later
+class DatabaseWriter {
+	interface Write {
+		void run(Connection connection) throws SQLException;
+	}
+
+	private static final long RETRY_DELAY_MILLIS = 5000;
+
+	private final ConnectionPool connectionPool;
+
+	//newest change waiting for every key, in the order keys were first queued
+	//this and stopped are guarded by pendingWrites
+	private final LinkedHashMap<String, Write> pendingWrites = new LinkedHashMap<>();
+	private boolean stopped = false;
+
+	private final Thread writerThread;
+
+	//statistics
+	private final LongAdder queuedCount = new LongAdder();
+	private final LongAdder coalescedCount = new LongAdder();
+	private final LongAdder writtenCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+
+	DatabaseWriter(ConnectionPool connectionPool) {
+		this.connectionPool = connectionPool;
+
+		this.writerThread = new Thread(this::writeLoop, "GriefPrevention Database Writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	//queues a change, once the writer has been shut down it's written right away instead
+	void write(String key, Write write) {
+		this.queuedCount.increment();
+		synchronized(this.pendingWrites) {
+			if(!this.stopped) {
+				if(this.pendingWrites.put(key, write) != null) {
+					this.coalescedCount.increment();
+				}
+				this.pendingWrites.notifyAll();
+				return;
+			}
+		}
+
+		LinkedHashMap<String, Write> batch = new LinkedHashMap<>();
+		batch.put(key, write);
+		this.writeBatch(batch);
+	}
+
+	//gets the change waiting for a key, so reads can see what's about to be written
+	Write getPending(String key) {
+		synchronized(this.pendingWrites) {
+			return this.pendingWrites.get(key);
+		}
+	}
+
+	private void writeLoop() {
+		while(true) {
+			LinkedHashMap<String, Write> batch;
+			synchronized(this.pendingWrites) {
+				while(this.pendingWrites.isEmpty()) {
+					if(this.stopped) return;
+
+					try {
+						this.pendingWrites.wait();
+					} catch(InterruptedException e) {
+						return;
+					}
+				}
+
+				batch = new LinkedHashMap<>(this.pendingWrites);
+			}
+
+			//wait a bit before trying again if the database couldn't be reached
+			boolean written;
+			try {
+				written = this.writeBatch(batch);
+			} catch(Throwable e) {
+				//this thread is the only one writing, it mustn't die with everything after this stuck in the queue
+				GriefPreventionLight.AddLogEntry("Unexpected exception writing to the database: " + e);
+				e.printStackTrace();
+				written = false;
+			}
+
+			if(!written) {
+				synchronized(this.pendingWrites) {
+					if(this.stopped) return;
+
+					try {
+						this.pendingWrites.wait(RETRY_DELAY_MILLIS);
+					} catch(InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	//writes a batch, returns false if the database couldn't be reached and some of it is still waiting
+	//changes which fail for any other reason, including unexpected exceptions, are logged and dropped, trying them again would only fail the same way
+	private boolean writeBatch(LinkedHashMap<String, Write> batch) {
+		ArrayList<Map.Entry<String, Write>> done = new ArrayList<>();
+		Connection connection = null;
+		try {
+			connection = this.connectionPool.borrow();
+			connection.setAutoCommit(false);
+			for(Map.Entry<String, Write> entry : batch.entrySet()) {
+				try {
+					entry.getValue().run(connection);
+					connection.commit();
+					this.writtenCount.increment();
+				} catch(SQLException e) {
+					try {
+						connection.rollback();
+					} catch(SQLException rollbackException) {
+					}
+
+					//a dropped connection isn't the change's fault, leave it and the rest for the next try
+					if(!ConnectionPool.isValid(connection)) {
+						this.connectionPool.discard(connection);
+						connection = null;
+						throw e;
+					}
+
+					this.failedCount.increment();
+					GriefPreventionLight.AddLogEntry("Unable to save " + entry.getKey() + " to the database.  Details:");
+					GriefPreventionLight.AddLogEntry(e.getMessage());
+				} catch(Throwable e) {
+					//a bug in the change itself, it would only fail the same way again
+					try {
+						connection.rollback();
+					} catch(SQLException rollbackException) {
+					}
+
+					this.failedCount.increment();
+					GriefPreventionLight.AddLogEntry("Unexpected exception saving " + entry.getKey() + " to the database: " + e);
+					e.printStackTrace();
+				}
+
+				done.add(entry);
+			}
+
+			return true;
+		} catch(SQLException e) {
+			GriefPreventionLight.AddLogEntry("Unable to reach the database, " + (batch.size() - done.size()) + " changes will be saved once it's back.  Details: " + e.getMessage());
+			return false;
+		} finally {
+			if(connection != null) {
+				try {
+					connection.setAutoCommit(true);
+					this.connectionPool.release(connection);
+				} catch(SQLException e) {
+					this.connectionPool.discard(connection);
+				}
+			}
+
+			//anything queued again while this batch ran stays for the next one
+			synchronized(this.pendingWrites) {
+				for(Map.Entry<String, Write> entry : done) {
+					this.pendingWrites.remove(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	//number of changes waiting to be written
+	int getBacklog() {
+		synchronized(this.pendingWrites) {
+			return this.pendingWrites.size();
+		}
+	}
+
+	//one line summary of database writes, for the logs
+	String getStatus() {
+		return "Database writes: " + this.getBacklog() + " waiting, " +
+				this.queuedCount.sum() + " queued, " +
+				this.coalescedCount.sum() + " coalesced, " +
+				this.writtenCount.sum() + " written, " +
+				this.failedCount.sum() + " failed, " +
+				this.connectionPool.getOpenConnections() + " connections open.";
+	}
+
+	//waits for everything queued to be written, after this every change is written right away on the calling thread
+	void shutdown(long timeoutSeconds) {
+		synchronized(this.pendingWrites) {
+			this.stopped = true;
+			this.pendingWrites.notifyAll();
+		}
+
+		try {
+			this.writerThread.join(TimeUnit.SECONDS.toMillis(Math.max(1, timeoutSeconds)));
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		int backlog = this.getBacklog();
+		if(backlog > 0) {
+			GriefPreventionLight.AddLogWarning("Gave up waiting for the database, " + backlog + " changes were not saved.");
+		}
+
+		GriefPreventionLight.AddLogEntry(this.getStatus(), CustomLogEntryTypes.Debug);
+	}
+}
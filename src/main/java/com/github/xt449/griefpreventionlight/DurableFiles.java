@@ -0,0 +1,352 @@
+package com.github.xt449.griefpreventionlight;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+//writes the file system stores' files so a crash never leaves one half written
+//every file is written next to itself under a temporary name and then moved over the old one, so a reader sees the old contents or the new, never a mix
+//how hard it tries to get the data onto the disk before a power cut depends on GriefPrevention.Advanced.FileDurability:
+//  None:      no syncing, the operating system writes the data out whenever it likes
+//  Batched:   writes are collected for FileCommitIntervalMillis and then committed together by a background thread,
+//             a file written many times in that window is only written once, and each folder is synced once per commit
+//             a crash can lose the last window of changes, but never corrupts a file
+//  PerWrite:  every write is synced before the call returns
+//in batched mode reads go through here too, so a file which hasn't been committed yet still reads back as what was last written
+class DurableFiles {
+	enum Durability {
+		NONE, BATCHED, PER_WRITE
+	}
+
+	//what a file should become at the next commit, no contents for a delete
+	private static final class PendingWrite {
+		final byte[] contents;
+
+		PendingWrite(byte[] contents) {
+			this.contents = contents;
+		}
+	}
+
+	//how long the committer waits before trying again after a commit which couldn't write everything
+	private static final long RETRY_DELAY_MILLIS = 5000;
+
+	private final Durability durability;
+	private final long commitIntervalMillis;
+
+	//newest pending write of every file since the last commit, by absolute path
+	//this, pendingSyncs and stopped are all guarded by pendingWrites
+	private final LinkedHashMap<File, PendingWrite> pendingWrites = new LinkedHashMap<>();
+	private final Set<FileChannel> pendingSyncs = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean stopped = false;
+
+	//held for a whole commit, so the committer and shutdown() never commit at the same time
+	private final Object commitLock = new Object();
+	private final Thread committer;
+
+	//statistics
+	private final LongAdder writeCount = new LongAdder();
+	private final LongAdder coalescedWriteCount = new LongAdder();
+	private final LongAdder commitCount = new LongAdder();
+
+	DurableFiles(Durability durability, long commitIntervalMillis) {
+		this.durability = durability;
+		this.commitIntervalMillis = Math.max(1, commitIntervalMillis);
+
+		if(durability == Durability.BATCHED) {
+			this.committer = new Thread(this::commitLoop, "GriefPrevention File Commit");
+			this.committer.setDaemon(true);
+			this.committer.start();
+		} else {
+			this.committer = null;
+		}
+	}
+
+	//reads a config value, anything unrecognized means batched
+	static Durability parseDurability(String name) {
+		switch(name.toLowerCase().replace("-", "").replace("_", "").replace(" ", "")) {
+			case "none":
+				return Durability.NONE;
+			case "perwrite":
+				return Durability.PER_WRITE;
+			default:
+				return Durability.BATCHED;
+		}
+	}
+
+	//replaces a file's contents
+	void write(File file, byte[] contents) throws IOException {
+		this.writeCount.increment();
+		if(this.enqueue(file, new PendingWrite(contents))) return;
+
+		boolean sync = this.durability != Durability.NONE;
+		moveIntoPlace(writeTemporaryFile(file, contents, sync), file);
+		if(sync) syncFolder(file.getAbsoluteFile().getParentFile());
+	}
+
+	//deletes a file, in order with any writes to it which haven't been committed yet
+	void delete(File file) throws IOException {
+		if(this.enqueue(file, new PendingWrite(null))) return;
+
+		Files.deleteIfExists(file.toPath());
+	}
+
+	//gets a file's contents as last written, or null if it doesn't exist
+	byte[] read(File file) throws IOException {
+		synchronized(this.pendingWrites) {
+			PendingWrite pendingWrite = this.pendingWrites.get(file.getAbsoluteFile());
+			if(pendingWrite != null) return pendingWrite.contents;
+		}
+
+		if(!file.exists()) return null;
+
+		return Files.readAllBytes(file.toPath());
+	}
+
+	//makes sure what's been written to an open file, e.g. an append only journal, reaches the disk as the durability setting says
+	void sync(FileChannel channel) throws IOException {
+		if(this.durability == Durability.NONE) return;
+
+		synchronized(this.pendingWrites) {
+			if(this.durability == Durability.BATCHED && !this.stopped) {
+				this.pendingSyncs.add(channel);
+				this.pendingWrites.notifyAll();
+				return;
+			}
+		}
+
+		channel.force(false);
+	}
+
+	//adds a write to the next commit, returns false if it has to be done right away instead
+	private boolean enqueue(File file, PendingWrite pendingWrite) {
+		if(this.durability != Durability.BATCHED) return false;
+
+		synchronized(this.pendingWrites) {
+			if(this.stopped) return false;
+
+			if(this.pendingWrites.put(file.getAbsoluteFile(), pendingWrite) != null) {
+				this.coalescedWriteCount.increment();
+			}
+			this.pendingWrites.notifyAll();
+		}
+
+		return true;
+	}
+
+	private void commitLoop() {
+		//not interrupted to stop, that would close any file it's in the middle of writing
+		//shutdown() wakes it up instead, and does the last commit itself
+		while(true) {
+			try {
+				synchronized(this.pendingWrites) {
+					//sleep until there's something to commit
+					while(this.pendingWrites.isEmpty() && this.pendingSyncs.isEmpty() && !this.stopped) {
+						this.pendingWrites.wait();
+					}
+
+					//then give other writes the rest of the window to join in
+					long deadline = System.currentTimeMillis() + this.commitIntervalMillis;
+					long remaining;
+					while(!this.stopped && (remaining = deadline - System.currentTimeMillis()) > 0) {
+						this.pendingWrites.wait(remaining);
+					}
+
+					if(this.stopped) return;
+				}
+			} catch(InterruptedException e) {
+				return;
+			}
+
+			//e.g. the disk is full, don't retry right away
+			if(!this.commit()) {
+				synchronized(this.pendingWrites) {
+					if(this.stopped) return;
+
+					try {
+						this.pendingWrites.wait(RETRY_DELAY_MILLIS);
+					} catch(InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	//writes out everything pending right away, for callers which are about to do something that relies on it being on the disk
+	//e.g. a conversion which moves the old files away once the new ones are written
+	void flush() throws IOException {
+		if(!this.commit()) {
+			throw new IOException("Unable to write every file, see the log for details.");
+		}
+	}
+
+	//writes out everything pending, returns false if some of it couldn't be written
+	//new contents are synced before they're moved into place, and files are only deleted once everything else is in place,
+	//so e.g. a journal is never deleted before the base file which replaces it is on the disk
+	//if any write fails, none of the deletes happen and everything not done stays pending for the next commit
+	private boolean commit() {
+		synchronized(this.commitLock) {
+			LinkedHashMap<File, PendingWrite> batch;
+			ArrayList<FileChannel> syncs;
+			synchronized(this.pendingWrites) {
+				batch = new LinkedHashMap<>(this.pendingWrites);
+				syncs = new ArrayList<>(this.pendingSyncs);
+				this.pendingSyncs.clear();
+			}
+
+			if(batch.isEmpty() && syncs.isEmpty()) return true;
+
+			//files written and moved into place, or deleted, only these leave the pending list
+			HashSet<File> done = new HashSet<>();
+
+			LinkedHashMap<File, File> moves = new LinkedHashMap<>();
+			for(Map.Entry<File, PendingWrite> entry : batch.entrySet()) {
+				if(entry.getValue().contents == null) continue;
+
+				try {
+					moves.put(writeTemporaryFile(entry.getKey(), entry.getValue().contents, true), entry.getKey());
+				} catch(IOException e) {
+					GriefPreventionLight.AddLogEntry("Unable to write \"" + entry.getKey().getPath() + "\": " + e.getMessage());
+				}
+			}
+
+			HashSet<File> folders = new HashSet<>();
+			for(Map.Entry<File, File> move : moves.entrySet()) {
+				try {
+					moveIntoPlace(move.getKey(), move.getValue());
+					folders.add(move.getValue().getParentFile());
+					done.add(move.getValue());
+				} catch(IOException e) {
+					GriefPreventionLight.AddLogEntry("Unable to replace \"" + move.getValue().getPath() + "\": " + e.getMessage());
+				}
+			}
+
+			for(File folder : folders) {
+				syncFolder(folder);
+			}
+
+			//a delete may only be safe because of a write in the same batch, so skip them all if any write didn't make it
+			if(done.size() == writeCount(batch)) {
+				for(Map.Entry<File, PendingWrite> entry : batch.entrySet()) {
+					if(entry.getValue().contents != null) continue;
+
+					try {
+						Files.deleteIfExists(entry.getKey().toPath());
+						done.add(entry.getKey());
+					} catch(IOException e) {
+						GriefPreventionLight.AddLogEntry("Unable to delete \"" + entry.getKey().getPath() + "\": " + e.getMessage());
+					}
+				}
+			}
+
+			for(FileChannel channel : syncs) {
+				try {
+					channel.force(false);
+				} catch(ClosedChannelException e) {
+					//closed since, which means whoever closed it already synced it
+				} catch(IOException e) {
+					GriefPreventionLight.AddLogEntry("Unable to sync a journal: " + e.getMessage());
+				}
+			}
+
+			//anything written again while this commit ran, or not done, stays pending for the next one
+			synchronized(this.pendingWrites) {
+				for(Map.Entry<File, PendingWrite> entry : batch.entrySet()) {
+					if(done.contains(entry.getKey())) {
+						this.pendingWrites.remove(entry.getKey(), entry.getValue());
+					}
+				}
+			}
+
+			this.commitCount.increment();
+			return done.size() == batch.size();
+		}
+	}
+
+	private static int writeCount(Map<File, PendingWrite> batch) {
+		int count = 0;
+		for(PendingWrite pendingWrite : batch.values()) {
+			if(pendingWrite.contents != null) count++;
+		}
+
+		return count;
+	}
+
+	//the temporary file starts with an underscore, which every store already skips when it lists its folders
+	private static File writeTemporaryFile(File file, byte[] contents, boolean sync) throws IOException {
+		File folder = file.getAbsoluteFile().getParentFile();
+		folder.mkdirs();
+
+		File tempFile = new File(folder, "_" + file.getName() + ".tmp");
+		try(FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap(contents);
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+
+			if(sync) channel.force(true);
+		}
+
+		return tempFile;
+	}
+
+	private static void moveIntoPlace(File tempFile, File file) throws IOException {
+		try {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	//makes renames in a folder stick, skipped on platforms which can't open a folder for this
+	private static void syncFolder(File folder) {
+		try(FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch(IOException e) {
+		}
+	}
+
+	//one line summary of write and commit counts, for the logs
+	String getStatus() {
+		int pending;
+		synchronized(this.pendingWrites) {
+			pending = this.pendingWrites.size();
+		}
+
+		return "File writes (" + this.durability + "): " + this.writeCount.sum() + " written, " +
+				this.coalescedWriteCount.sum() + " coalesced, " +
+				this.commitCount.sum() + " commits, " +
+				pending + " pending.";
+	}
+
+	//commits everything still pending, after this every write is synced right away
+	void shutdown() {
+		synchronized(this.pendingWrites) {
+			this.stopped = true;
+			this.pendingWrites.notifyAll();
+		}
+
+		if(this.committer != null) {
+			try {
+				this.committer.join();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if(!this.commit()) {
+			GriefPreventionLight.AddLogWarning("Some files could not be written while shutting down.  " + this.getStatus());
+			return;
+		}
+
+		GriefPreventionLight.AddLogEntry(this.getStatus(), CustomLogEntryTypes.Debug);
+	}
+}
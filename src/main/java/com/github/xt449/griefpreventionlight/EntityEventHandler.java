@@ -218,16 +218,15 @@ public class EntityEventHandler implements Listener {
 
 		//make a list of blocks which were allowed to explode
 		List<Block> explodedBlocks = new ArrayList<>();
-		Claim cachedClaim = null;
-		for(Block block : blocks) {
+		Claim[] blockClaims = GriefPreventionLight.instance.dataStore.getClaimsAt(world, blocks);
+		for(int i = 0; i < blocks.size(); i++) {
+			Block block = blocks.get(i);
+
 			//always ignore air blocks
 			if(block.getType() == Material.AIR) continue;
 
 			//is it in a land claim?
-			Claim claim = GriefPreventionLight.instance.dataStore.getClaimAt(block.getLocation(), cachedClaim);
-			if(claim != null) {
-				cachedClaim = claim;
-			}
+			Claim claim = blockClaims[i];
 
 			//if yes, apply claim exemptions if they should apply
 			if(claim != null && (claim.areExplosivesAllowed || !GriefPreventionLight.instance.config_blockClaimExplosions)) {
@@ -27,14 +27,21 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
+import java.util.stream.Collectors;
 
 //manages data stored in the file system
 public class FlatFileDataStore extends DataStore {
-	private final static String claimDataFolderPath = dataLayerFolderPath + File.separator + "ClaimData";
+	final static String claimDataFolderPath = dataLayerFolderPath + File.separator + "ClaimData";
 	private final static String nextClaimIdFilePath = claimDataFolderPath + File.separator + "_nextClaimID";
 	private final static String schemaVersionFilePath = dataLayerFolderPath + File.separator + "_schemaVersion";
+	private final static String claimColumnFilePath = dataLayerFolderPath + File.separator + "_claimSnapshot.bin";
+	private final static String claimColumnTokenFilePath = dataLayerFolderPath + File.separator + "_claimSnapshot.token";
+	private final static String playerDataShardFolderPath = dataLayerFolderPath + File.separator + "PlayerDataShards";
+	private final static String playerDataBackupFolderPath = dataLayerFolderPath + File.separator + "PlayerDataBackup";
+
+	//player claim blocks and group bonus blocks, when they're packed into shards instead of one file each
+	private PlayerDataShards playerDataShards = null;
 
 	static boolean hasData() {
 		File claimsDataFolder = new File(claimDataFolderPath);
@@ -44,7 +51,12 @@ public class FlatFileDataStore extends DataStore {
 
 	//initialization!
 	FlatFileDataStore() throws Exception {
-		this.initialize();
+		this(true);
+	}
+
+	//subclasses pass false and call initialize() themselves, once their own fields are set up
+	FlatFileDataStore(boolean initialize) throws Exception {
+		if(initialize) this.initialize();
 	}
 
 	@Override
@@ -64,34 +76,39 @@ public class FlatFileDataStore extends DataStore {
 			this.setSchemaVersion(DataStore.latestSchemaVersion);
 		}
 
-		//load group data into memory
-		File[] files = playerDataFolder.listFiles();
-		for(File file : files) {
-			if(!file.isFile()) continue;  //avoids folders
+		//load group data into memory, the shards have their own group file
+		File[] files;
+		if(GriefPreventionLight.instance.config_advanced_packedPlayerData) {
+			this.playerDataShards = new PlayerDataShards(new File(playerDataShardFolderPath));
+		} else {
+			files = playerDataFolder.listFiles();
+			for(File file : files) {
+				if(!file.isFile()) continue;  //avoids folders
 
-			//all group data files start with a dollar sign.  ignoring the rest, which are player data files.
-			if(!file.getName().startsWith("$")) continue;
+				//all group data files start with a dollar sign.  ignoring the rest, which are player data files.
+				if(!file.getName().startsWith("$")) continue;
 
-			String groupName = file.getName().substring(1);
-			if(groupName.isEmpty()) continue;  //defensive coding, avoid unlikely cases
+				String groupName = file.getName().substring(1);
+				if(groupName.isEmpty()) continue;  //defensive coding, avoid unlikely cases
 
-			BufferedReader inStream = null;
-			try {
-				inStream = new BufferedReader(new FileReader(file.getAbsolutePath()));
-				String line = inStream.readLine();
+				BufferedReader inStream = null;
+				try {
+					inStream = new BufferedReader(new FileReader(file.getAbsolutePath()));
+					String line = inStream.readLine();
 
-				int groupBonusBlocks = Integer.parseInt(line);
+					int groupBonusBlocks = Integer.parseInt(line);
 
-				this.permissionToBonusBlocksMap.put(groupName, groupBonusBlocks);
-			} catch(Exception e) {
-				StringWriter errors = new StringWriter();
-				e.printStackTrace(new PrintWriter(errors));
-				GriefPreventionLight.AddLogEntry(errors.toString(), CustomLogEntryTypes.Exception);
-			}
+					this.permissionToBonusBlocksMap.put(groupName, groupBonusBlocks);
+				} catch(Exception e) {
+					StringWriter errors = new StringWriter();
+					e.printStackTrace(new PrintWriter(errors));
+					GriefPreventionLight.AddLogEntry(errors.toString(), CustomLogEntryTypes.Exception);
+				}
 
-			try {
-				if(inStream != null) inStream.close();
-			} catch(IOException exception) {
+				try {
+					if(inStream != null) inStream.close();
+				} catch(IOException exception) {
+				}
 			}
 		}
 
@@ -106,7 +123,7 @@ public class FlatFileDataStore extends DataStore {
 				String line = inStream.readLine();
 
 				//try to parse into a long value
-				this.nextClaimID = Long.parseLong(line);
+				this.nextClaimIDStored(Long.parseLong(line));
 			} catch(Exception e) {
 			}
 
@@ -158,21 +175,119 @@ public class FlatFileDataStore extends DataStore {
 			}
 		}
 
-		//load claims data into memory
+		//player data is moved into the shards the first time they're used, after any renaming above
+		if(this.playerDataShards != null) {
+			if(!this.playerDataShards.exists()) {
+				this.migratePlayerDataToShards(playerDataFolder);
+			}
+
+			this.permissionToBonusBlocksMap.putAll(this.playerDataShards.readGroupBonusBlocks());
+		}
+
+		//load claims data into memory, from the dump written at the last clean shutdown if it's still current
+		if(!this.loadClaimColumnFile()) {
+			this.loadClaims(claimDataFolder);
+		}
+
+		super.initialize();
+	}
+
+	//loads claims from the dump written by writeClaimColumnFile(), returns false if they have to be loaded from the claim files instead
+	//the dump is only trusted when the token written next to it matches, and the claim files still look exactly like they did when it was written
+	//the token is deleted before anything else, so after a crash or an unclean stop the next start always reads the claim files
+	private boolean loadClaimColumnFile() {
+		File tokenFile = new File(claimColumnTokenFilePath);
+		File columnFile = new File(claimColumnFilePath);
+		if(!tokenFile.exists()) return false;
+
+		try {
+			long token = Long.parseLong(new String(java.nio.file.Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8).trim());
+			java.nio.file.Files.delete(tokenFile.toPath());
+			if(!GriefPreventionLight.instance.config_advanced_claimSnapshotOnShutdown) return false;
+
+			long startTime = System.currentTimeMillis();
+			ClaimColumnFile.Contents contents = ClaimColumnFile.read(columnFile);
+			if(contents == null || contents.claims == null || contents.token != token || !Arrays.equals(contents.fingerprint, this.getClaimStorageFingerprint())) {
+				GriefPreventionLight.AddLogEntry("The claim snapshot from the last shutdown is out of date, loading claims from their files instead.");
+				return false;
+			}
+
+			for(Claim claim : contents.claims) {
+				this.addClaim(claim, false);
+			}
+			this.claimsLoadedFromColumnFile();
+
+			GriefPreventionLight.AddLogEntry("Loaded " + contents.claims.size() + " claims and subdivisions from the claim snapshot in " + (System.currentTimeMillis() - startTime) + "ms.", CustomLogEntryTypes.Debug, true);
+			return true;
+		} catch(Exception e) {
+			GriefPreventionLight.AddLogEntry("Unable to read the claim snapshot from the last shutdown, loading claims from their files instead: " + e);
+			return false;
+		}
+	}
+
+	//dumps every claim for loadClaimColumnFile(), once nothing else will be written to the claim files
+	private void writeClaimColumnFile() {
+		if(!GriefPreventionLight.instance.config_advanced_claimSnapshotOnShutdown) return;
+
+		try {
+			long token = new Random().nextLong();
+			ClaimColumnFile.write(new File(claimColumnFilePath), token, this.getClaimStorageFingerprint(), this.claims);
+
+			//the token goes last, a dump without one is never used
+			java.nio.file.Files.write(new File(claimColumnTokenFilePath).toPath(), Long.toString(token).getBytes(StandardCharsets.UTF_8));
+		} catch(Exception e) {
+			GriefPreventionLight.AddLogEntry("Unable to write the claim snapshot, the next start will load claims from their files: " + e);
+		}
+	}
+
+	//file count, total size and newest modification time of the claim files, so a dump can tell if they changed behind its back
+	long[] getClaimStorageFingerprint() {
+		long[] fingerprint = new long[3];
+		addToFingerprint(fingerprint, new File(claimDataFolderPath));
+		return fingerprint;
+	}
+
+	//adds every file in a folder and its subfolders to a fingerprint
+	static void addToFingerprint(long[] fingerprint, File folder) {
+		File[] files = folder.listFiles();
+		if(files == null) return;
+
+		for(File file : files) {
+			if(file.isDirectory()) {
+				addToFingerprint(fingerprint, file);
+				continue;
+			}
+
+			fingerprint[0]++;
+			fingerprint[1] += file.length();
+			fingerprint[2] = Math.max(fingerprint[2], file.lastModified());
+		}
+	}
+
+	//called after claims were loaded from the dump instead of loadClaims(), for stores which keep more than the claims themselves in memory
+	void claimsLoadedFromColumnFile() throws Exception {
+	}
+
+	//loads every claim into memory, overridden by stores which keep claims some other way
+	void loadClaims(File claimDataFolder) throws Exception {
 		//get a list of all the files in the claims data folder
-		files = claimDataFolder.listFiles();
+		File[] files = claimDataFolder.listFiles();
 
 		if(this.getSchemaVersion() <= 1) {
 			this.loadClaimData_Legacy(files);
 		} else {
 			this.loadClaimData(files);
 		}
+	}
 
-		super.initialize();
+	//adds a claim read from a claim file
+	//stores which also read claims from somewhere else override this to skip the ones they already have
+	void addLoadedClaim(Claim claim) {
+		this.addClaim(claim, false);
 	}
 
 	void loadClaimData_Legacy(File[] files) throws Exception {
-		List<World> validWorlds = Bukkit.getServer().getWorlds();
+		Map<String, World> worldsByName = getWorldsByName();
 
 		for(int i = 0; i < files.length; i++) {
 			if(files[i].isFile())  //avoids folders
@@ -219,11 +334,11 @@ public class FlatFileDataStore extends DataStore {
 
 						//first line is lesser boundary corner location
 						lesserCornerString = line;
-						Location lesserBoundaryCorner = this.locationFromString(lesserCornerString, validWorlds);
+						Location lesserBoundaryCorner = this.locationFromString(lesserCornerString, worldsByName);
 
 						//second line is greater boundary corner location
 						line = inStream.readLine();
-						Location greaterBoundaryCorner = this.locationFromString(line, validWorlds);
+						Location greaterBoundaryCorner = this.locationFromString(line, worldsByName);
 
 						//third line is owner name
 						line = inStream.readLine();
@@ -280,7 +395,7 @@ public class FlatFileDataStore extends DataStore {
 							topLevelClaim = new Claim(lesserBoundaryCorner.getWorld(), Coordinate.fromLocation(lesserBoundaryCorner), Coordinate.fromLocation(greaterBoundaryCorner), ownerID, builderNames, containerNames, accessorNames, managerNames, claimID);
 
 							topLevelClaim.modifiedDate = new Date(files[i].lastModified());
-							this.addClaim(topLevelClaim, false);
+							this.addLoadedClaim(topLevelClaim);
 						}
 
 						//otherwise there's already a top level claim, so this must be a subdivision of that top level claim
@@ -289,8 +404,7 @@ public class FlatFileDataStore extends DataStore {
 
 							subdivision.modifiedDate = new Date(files[i].lastModified());
 							subdivision.parent = topLevelClaim;
-							topLevelClaim.children.add(subdivision);
-							subdivision.inDataStore = true;
+							this.addLoadedClaim(subdivision);
 						}
 
 						//move up to the first line in the next subdivision
@@ -322,8 +436,23 @@ public class FlatFileDataStore extends DataStore {
 		}
 	}
 
+	//one claim file's outcome from the parallel read and parse phase of loadClaimData()
+	private static final class LoadedClaimFile {
+		final File file;
+		final long claimID;
+		Claim claim;
+		long parentID = -1;
+		Exception exception;
+
+		LoadedClaimFile(File file, long claimID) {
+			this.file = file;
+			this.claimID = claimID;
+		}
+	}
+
 	void loadClaimData(File[] files) {
-		ConcurrentHashMap<Claim, Long> orphans = new ConcurrentHashMap<>();
+		//first pick out the claim files and settle their IDs, which may mean renaming a few, so this part stays on one thread
+		ArrayList<LoadedClaimFile> claimFiles = new ArrayList<>(files.length);
 		for(int i = 0; i < files.length; i++) {
 			if(files[i].isFile())  //avoids folders
 			{
@@ -353,35 +482,53 @@ public class FlatFileDataStore extends DataStore {
 					files[i] = newFile;
 				}
 
-				try {
-					ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
-					Claim claim = this.loadClaim(files[i], out_parentID, claimID);
-					if(out_parentID.size() == 0 || out_parentID.get(0) == -1) {
-						this.addClaim(claim, false);
-					} else {
-						orphans.put(claim, out_parentID.get(0));
-					}
-				}
+				claimFiles.add(new LoadedClaimFile(files[i], claimID));
+			}
+		}
 
-				//if there's any problem with the file's content, log an error message and skip it
-				catch(Exception e) {
-					if(e.getMessage() != null && e.getMessage().contains("World not found")) {
-						files[i].delete();
-					} else {
-						StringWriter errors = new StringWriter();
-						e.printStackTrace(new PrintWriter(errors));
-						GriefPreventionLight.AddLogEntry(files[i].getName() + " " + errors.toString(), CustomLogEntryTypes.Exception);
-					}
+		//reading and parsing the files doesn't touch the data store, so it's spread over every core
+		Map<String, World> worldsByName = getWorldsByName();
+		claimFiles.parallelStream().forEach(claimFile -> {
+			try {
+				String input = new String(java.nio.file.Files.readAllBytes(claimFile.file.toPath()), StandardCharsets.UTF_8);
+				ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
+				claimFile.claim = this.loadClaim(input, out_parentID, claimFile.file.lastModified(), claimFile.claimID, worldsByName);
+				if(out_parentID.size() > 0) claimFile.parentID = out_parentID.get(0);
+			} catch(Exception e) {
+				claimFile.exception = e;
+			}
+		});
+
+		//then add the claims one at a time, in file order
+		LinkedHashMap<Claim, Long> orphans = new LinkedHashMap<>();
+		for(LoadedClaimFile claimFile : claimFiles) {
+			//if there's any problem with the file's content, log an error message and skip it
+			if(claimFile.exception != null) {
+				Exception e = claimFile.exception;
+				if(e.getMessage() != null && e.getMessage().contains("World not found")) {
+					claimFile.file.delete();
+				} else {
+					StringWriter errors = new StringWriter();
+					e.printStackTrace(new PrintWriter(errors));
+					GriefPreventionLight.AddLogEntry(claimFile.file.getName() + " " + errors.toString(), CustomLogEntryTypes.Exception);
 				}
+				continue;
+			}
+
+			if(claimFile.parentID == -1) {
+				this.addLoadedClaim(claimFile.claim);
+			} else {
+				orphans.put(claimFile.claim, claimFile.parentID);
 			}
 		}
 
-		//link children to parents
-		for(Claim child : orphans.keySet()) {
-			Claim parent = this.getClaim(orphans.get(child));
+		//link children to parents, now that every top level claim can be found by ID
+		for(Map.Entry<Claim, Long> orphan : orphans.entrySet()) {
+			Claim parent = this.getClaim(orphan.getValue());
 			if(parent != null) {
+				Claim child = orphan.getKey();
 				child.parent = parent;
-				this.addClaim(child, false);
+				this.addLoadedClaim(child);
 			}
 		}
 	}
@@ -393,17 +540,17 @@ public class FlatFileDataStore extends DataStore {
 			builder.append(line).append('\n');
 		}
 
-		return this.loadClaim(builder.toString(), out_parentID, file.lastModified(), claimID, Bukkit.getServer().getWorlds());
+		return this.loadClaim(builder.toString(), out_parentID, file.lastModified(), claimID, getWorldsByName());
 	}
 
-	Claim loadClaim(String input, ArrayList<Long> out_parentID, long lastModifiedDate, long claimID, List<World> validWorlds) throws Exception {
+	Claim loadClaim(String input, ArrayList<Long> out_parentID, long lastModifiedDate, long claimID, Map<String, World> worldsByName) throws Exception {
 		Claim claim = null;
 		YamlConfiguration yaml = new YamlConfiguration();
 		yaml.loadFromString(input);
 
 		//boundaries
-		Location lesserBoundaryCorner = this.locationFromString(yaml.getString("Lesser Boundary Corner"), validWorlds);
-		Location greaterBoundaryCorner = this.locationFromString(yaml.getString("Greater Boundary Corner"), validWorlds);
+		Location lesserBoundaryCorner = this.locationFromString(yaml.getString("Lesser Boundary Corner"), worldsByName);
+		Location greaterBoundaryCorner = this.locationFromString(yaml.getString("Greater Boundary Corner"), worldsByName);
 
 		//owner
 		String ownerIdentifier = yaml.getString("Owner");
@@ -479,10 +626,9 @@ public class FlatFileDataStore extends DataStore {
 		String yaml = this.getYamlForClaim(claim);
 
 		try {
-			//open the claim's file
+			//write the claim's file
 			File claimFile = new File(claimDataFolderPath + File.separator + claimID + ".yml");
-			claimFile.createNewFile();
-			Files.write(yaml.getBytes(StandardCharsets.UTF_8), claimFile);
+			GriefPreventionLight.instance.durableFiles.write(claimFile, yaml.getBytes(StandardCharsets.UTF_8));
 		}
 
 		//if any problem, log it
@@ -500,88 +646,126 @@ public class FlatFileDataStore extends DataStore {
 
 		//remove from disk
 		File claimFile = new File(claimDataFolderPath + File.separator + claimID + ".yml");
-		if(claimFile.exists() && !claimFile.delete()) {
-			GriefPreventionLight.AddLogEntry("Error: Unable to delete claim file \"" + claimFile.getAbsolutePath() + "\".");
+		try {
+			GriefPreventionLight.instance.durableFiles.delete(claimFile);
+		} catch(IOException e) {
+			GriefPreventionLight.AddLogEntry("Error: Unable to delete claim file \"" + claimFile.getAbsolutePath() + "\": " + e.getMessage());
 		}
 	}
 
 	@Override
-	synchronized PlayerData getPlayerDataFromStorage(UUID playerID) {
+	PlayerData getPlayerDataFromStorage(UUID playerID) {
 		File playerFile = new File(playerDataFolderPath + File.separator + playerID.toString());
 
 		PlayerData playerData = new PlayerData();
 		playerData.playerID = playerID;
 
+		if(this.playerDataShards != null) {
+			try {
+				this.playerDataShards.read(playerID, playerData);
+			} catch(IOException e) {
+				GriefPreventionLight.AddLogEntry("Failed to load PlayerData for " + playerID + " from its shard: " + e.getMessage());
+			}
+
+			return playerData;
+		}
+
 		//if it exists as a file, read the file
-		if(playerFile.exists()) {
-			boolean needRetry = false;
-			int retriesRemaining = 5;
-			Exception latestException = null;
-			do {
-				try {
-					needRetry = false;
-
-					//read the file content and immediately close it
-					List<String> lines = Files.readLines(playerFile, StandardCharsets.UTF_8);
-					Iterator<String> iterator = lines.iterator();
-
-
-					iterator.next();
-					//first line is last login timestamp //RoboMWM - not using this anymore
-//
-//    				//convert that to a date and store it
-//    				DateFormat dateFormat = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss");
-//    				try
-//    				{
-//    					playerData.setLastLogin(dateFormat.parse(lastLoginTimestampString));
-//    				}
-//    				catch(ParseException parseException)
-//    				{
-//    					GriefPrevention.AddLogEntry("Unable to load last login for \"" + playerFile.getName() + "\".");
-//    					playerData.setLastLogin(null);
-//    				}
-
-					//second line is accrued claim blocks
-					String accruedBlocksString = iterator.next();
-
-					//convert that to a number and store it
-					playerData.setAccruedClaimBlocks(Integer.parseInt(accruedBlocksString));
-
-					//third line is any bonus claim blocks granted by administrators
-					String bonusBlocksString = iterator.next();
-
-					//convert that to a number and store it
-					playerData.setBonusClaimBlocks(Integer.parseInt(bonusBlocksString));
-
-					//fourth line is a double-semicolon-delimited list of claims, which is currently ignored
-					//String claimsString = inStream.readLine();
-					//iterator.next();
-				}
+		//files are always replaced whole (see DurableFiles), so a file which doesn't parse is really damaged and there's no point retrying
+		try {
+			byte[] contents = GriefPreventionLight.instance.durableFiles.read(playerFile);
+			if(contents != null) {
+				readPlayerDataFile(contents, playerData);
+			}
+		}
 
-				//if there's any problem with the file's content, retry up to 5 times with 5 milliseconds between
-				catch(Exception e) {
-					latestException = e;
-					needRetry = true;
-					retriesRemaining--;
-				}
+		//if there's any problem with the file's content, log information about the problem
+		catch(Exception e) {
+			StringWriter errors = new StringWriter();
+			e.printStackTrace(new PrintWriter(errors));
+			GriefPreventionLight.AddLogEntry("Failed to load PlayerData for " + playerID + ". This usually occurs when your server runs out of storage space, causing any file saves to corrupt. Fix or delete the file in GriefPrevetionData/PlayerData/" + playerID, CustomLogEntryTypes.Debug, false);
+			GriefPreventionLight.AddLogEntry(playerID + " " + errors.toString(), CustomLogEntryTypes.Exception);
+		}
 
-				try {
-					if(needRetry) Thread.sleep(5);
-				} catch(InterruptedException exception) {
+		return playerData;
+	}
+
+	//reads the contents of a player's file in the one file per player layout
+	private static void readPlayerDataFile(byte[] contents, PlayerData playerData) throws Exception {
+		List<String> lines = new BufferedReader(new StringReader(new String(contents, StandardCharsets.UTF_8))).lines().collect(Collectors.toList());
+		Iterator<String> iterator = lines.iterator();
+
+		//first line is last login timestamp //RoboMWM - not using this anymore
+		iterator.next();
+
+		//second line is accrued claim blocks
+		String accruedBlocksString = iterator.next();
+
+		//convert that to a number and store it
+		playerData.setAccruedClaimBlocks(Integer.parseInt(accruedBlocksString));
+
+		//third line is any bonus claim blocks granted by administrators
+		String bonusBlocksString = iterator.next();
+
+		//convert that to a number and store it
+		playerData.setBonusClaimBlocks(Integer.parseInt(bonusBlocksString));
+
+		//fourth line is a double-semicolon-delimited list of claims, which is currently ignored
+	}
+
+	//moves player and group files into the shards, then moves the old files out of the way
+	//ignore lists stay where they are, so afterwards the player data folder only holds those
+	private void migratePlayerDataToShards(File playerDataFolder) throws IOException {
+		File[] files = playerDataFolder.listFiles();
+		if(files == null) files = new File[0];
+
+		HashMap<String, Integer> groupBonusBlocks = new HashMap<>();
+		ArrayList<File> convertedFiles = new ArrayList<>();
+		for(File file : files) {
+			if(!file.isFile()) continue;  //avoids folders
+
+			String name = file.getName();
+			if(name.startsWith("_") || name.endsWith(".ignore")) continue;
+
+			try {
+				byte[] contents = java.nio.file.Files.readAllBytes(file.toPath());
+
+				//group data files start with a dollar sign, and just hold the number of bonus blocks
+				if(name.startsWith("$")) {
+					if(name.length() == 1) continue;
+
+					String line = new BufferedReader(new StringReader(new String(contents, StandardCharsets.UTF_8))).readLine();
+					groupBonusBlocks.put(name.substring(1), Integer.parseInt(line.trim()));
+				} else {
+					UUID playerID = UUID.fromString(name);
+					PlayerData playerData = new PlayerData();
+					readPlayerDataFile(contents, playerData);
+					this.playerDataShards.write(playerID, playerData.getAccruedClaimBlocks(), playerData.getBonusClaimBlocks());
 				}
 
-			} while(needRetry && retriesRemaining >= 0);
+				convertedFiles.add(file);
+			} catch(Exception e) {
+				GriefPreventionLight.AddLogEntry("Not moving player data file " + name + " into the shards because it couldn't be read: " + e);
+			}
+		}
+
+		//the group file goes last, since it marks the migration as done
+		this.playerDataShards.flush();
+		this.playerDataShards.writeGroupBonusBlocks(groupBonusBlocks);
+		GriefPreventionLight.instance.durableFiles.flush();
+
+		if(convertedFiles.isEmpty()) return;
 
-			//if last attempt failed, log information about the problem
-			if(needRetry) {
-				StringWriter errors = new StringWriter();
-				latestException.printStackTrace(new PrintWriter(errors));
-				GriefPreventionLight.AddLogEntry("Failed to load PlayerData for " + playerID + ". This usually occurs when your server runs out of storage space, causing any file saves to corrupt. Fix or delete the file in GriefPrevetionData/PlayerData/" + playerID, CustomLogEntryTypes.Debug, false);
-				GriefPreventionLight.AddLogEntry(playerID + " " + errors.toString(), CustomLogEntryTypes.Exception);
+		//only move the old files once everything is safely in the new ones
+		File backupFolder = new File(playerDataBackupFolderPath);
+		backupFolder.mkdirs();
+		for(File file : convertedFiles) {
+			if(!file.renameTo(new File(backupFolder, file.getName()))) {
+				GriefPreventionLight.AddLogEntry("Unable to move converted player data file " + file.getName() + " to " + backupFolder.getPath() + ".");
 			}
 		}
 
-		return playerData;
+		GriefPreventionLight.AddLogEntry("Moved " + convertedFiles.size() + " player and group data files into the player data shards.  The old files were moved to " + backupFolder.getPath() + ".");
 	}
 
 	//saves changes to player data.  MUST be called after you're done making changes, otherwise a reload will lose them
@@ -590,6 +774,17 @@ public class FlatFileDataStore extends DataStore {
 		//never save data for the "administrative" account.  null for claim owner ID indicates administrative account
 		if(playerID == null) return;
 
+		if(this.playerDataShards != null) {
+			try {
+				this.playerDataShards.write(playerID, playerData.getAccruedClaimBlocks(), playerData.getBonusClaimBlocks());
+			} catch(IOException e) {
+				GriefPreventionLight.AddLogEntry("GriefPrevention: Unexpected exception saving data for player \"" + playerID.toString() + "\": " + e.getMessage());
+				e.printStackTrace();
+			}
+
+			return;
+		}
+
 		StringBuilder fileContent = new StringBuilder();
 		try {
 			//first line is last login timestamp //RoboMWM - no longer storing/using
@@ -611,7 +806,7 @@ public class FlatFileDataStore extends DataStore {
 
 			//write data to file
 			File playerDataFile = new File(playerDataFolderPath + File.separator + playerID.toString());
-			Files.write(fileContent.toString().getBytes(StandardCharsets.UTF_8), playerDataFile);
+			GriefPreventionLight.instance.durableFiles.write(playerDataFile, fileContent.toString().getBytes(StandardCharsets.UTF_8));
 		}
 
 		//if any problem, log it
@@ -622,19 +817,11 @@ public class FlatFileDataStore extends DataStore {
 	}
 
 	@Override
-	synchronized void incrementNextClaimID() {
-		//increment in memory
-		this.nextClaimID++;
-
-		BufferedWriter outStream = null;
-
+	synchronized void writeNextClaimIDToStorage(long nextID) {
 		try {
-			//open the file and write the new value
+			//write the new value
 			File nextClaimIdFile = new File(nextClaimIdFilePath);
-			nextClaimIdFile.createNewFile();
-			outStream = new BufferedWriter(new FileWriter(nextClaimIdFile));
-
-			outStream.write(String.valueOf(this.nextClaimID));
+			GriefPreventionLight.instance.durableFiles.write(nextClaimIdFile, String.valueOf(nextID).getBytes(StandardCharsets.UTF_8));
 		}
 
 		//if any problem, log it
@@ -642,45 +829,30 @@ public class FlatFileDataStore extends DataStore {
 			GriefPreventionLight.AddLogEntry("Unexpected exception saving next claim ID: " + e.getMessage());
 			e.printStackTrace();
 		}
-
-		//close the file
-		try {
-			if(outStream != null) outStream.close();
-		} catch(IOException exception) {
-		}
 	}
 
 	//grants a group (players with a specific permission) bonus claim blocks as long as they're still members of the group
 	@Override
 	synchronized void saveGroupBonusBlocks(String groupName, int currentValue) {
 		//write changes to file to ensure they don't get lost
-		BufferedWriter outStream = null;
 		try {
-			//open the group's file
-			File groupDataFile = new File(playerDataFolderPath + File.separator + "$" + groupName);
-			groupDataFile.createNewFile();
-			outStream = new BufferedWriter(new FileWriter(groupDataFile));
+			if(this.playerDataShards != null) {
+				this.playerDataShards.writeGroupBonusBlocks(this.permissionToBonusBlocksMap);
+				return;
+			}
 
 			//first line is number of bonus blocks
-			outStream.write(String.valueOf(currentValue));
-			outStream.newLine();
+			File groupDataFile = new File(playerDataFolderPath + File.separator + "$" + groupName);
+			GriefPreventionLight.instance.durableFiles.write(groupDataFile, (currentValue + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
 		}
 
 		//if any problem, log it
 		catch(Exception e) {
 			GriefPreventionLight.AddLogEntry("Unexpected exception saving data for group \"" + groupName + "\": " + e.getMessage());
 		}
-
-		try {
-			//close the file
-			if(outStream != null) {
-				outStream.close();
-			}
-		} catch(IOException exception) {
-		}
 	}
 
-	synchronized void migrateData(DatabaseDataStore databaseStore) {
+	synchronized void migrateData(DatabaseDataStore databaseStore) throws IOException {
 		//migrate claims
 		for(Claim claim : this.claims) {
 			databaseStore.addClaim(claim, true);
@@ -695,8 +867,15 @@ public class FlatFileDataStore extends DataStore {
 		}
 
 		//migrate players
+		if(this.playerDataShards != null) {
+			for(UUID playerID : this.playerDataShards.getPlayerIDs()) {
+				databaseStore.savePlayerData(playerID, this.getPlayerData(playerID));
+				this.clearCachedPlayerData(playerID);
+			}
+		}
+
 		File playerDataFolder = new File(playerDataFolderPath);
-		File[] files = playerDataFolder.listFiles();
+		File[] files = this.playerDataShards != null ? new File[0] : playerDataFolder.listFiles();
 		for(File file : files) {
 			if(!file.isFile()) continue;  //avoids folders
 			if(file.isHidden()) continue; //avoid hidden files, which are likely not created by GriefPrevention
@@ -746,6 +925,11 @@ public class FlatFileDataStore extends DataStore {
 
 	@Override
 	synchronized void close() {
+		this.writeClaimColumnFile();
+
+		if(this.playerDataShards != null) {
+			this.playerDataShards.close();
+		}
 	}
 
 	@Override
@@ -779,27 +963,15 @@ public class FlatFileDataStore extends DataStore {
 
 	@Override
 	void updateSchemaVersionInStorage(int versionToSet) {
-		BufferedWriter outStream = null;
-
 		try {
-			//open the file and write the new value
+			//write the new value
 			File schemaVersionFile = new File(schemaVersionFilePath);
-			schemaVersionFile.createNewFile();
-			outStream = new BufferedWriter(new FileWriter(schemaVersionFile));
-
-			outStream.write(String.valueOf(versionToSet));
+			GriefPreventionLight.instance.durableFiles.write(schemaVersionFile, String.valueOf(versionToSet).getBytes(StandardCharsets.UTF_8));
 		}
 
 		//if any problem, log it
 		catch(Exception e) {
 			GriefPreventionLight.AddLogEntry("Unexpected exception saving schema version: " + e.getMessage());
 		}
-
-		//close the file
-		try {
-			if(outStream != null) outStream.close();
-		} catch(IOException exception) {
-		}
-
 	}
 }
@@ -63,6 +63,15 @@ public class GriefPreventionLight extends JavaPlugin {
 	//log entry manager for GP's custom log files
 	CustomLogger customLogger;
 
+	//runs background reads and writes of player data
+	StorageExecutor storageExecutor;
+
+	//crash safe writes for the file system stores, see DurableFiles
+	DurableFiles durableFiles;
+
+	//thread safe claim lookups for other plugins, see getClaimQueries()
+	private ClaimQueries claimQueries;
+
 	//configuration variables, loaded/saved from a config.yml
 
 	//claim mode for each world
@@ -167,6 +176,18 @@ public class GriefPreventionLight extends JavaPlugin {
 	public boolean config_advanced_fixNegativeClaimblockAmounts;    //whether to attempt to fix negative claim block amounts (some addons cause/assume players can go into negative amounts)
 	public int config_advanced_claim_expiration_check_rate;            //How often GP should check for expired claims, amount in seconds
 	public int config_advanced_offlineplayer_cache_days;            //Cache players who have logged in within the last x number of days
+	public int config_advanced_storageThreads;                      //how many threads read and write player data in the background
+	public int config_advanced_storageQueueSize;                    //how many storage tasks may wait before admins are warned that storage is falling behind
+	public int config_advanced_storageShutdownTimeoutSeconds;       //how long to wait for queued storage tasks when the plugin is disabled
+	public String config_advanced_fileDurability;                   //how hard the file system stores try to get writes onto the disk: None, Batched or PerWrite
+	public int config_advanced_fileCommitIntervalMillis;            //how long batched file writes are collected before they're committed together
+	public int config_advanced_claimIDBlockSize;                    //how many claim IDs are handed out between writes of the next claim ID
+	public int config_advanced_claimSaveIntervalTicks;              //how often changed claims are written out in the background, 0 writes each change right away
+	public boolean config_advanced_claimRegionFiles;                //whether the file system store packs claims into binary region files instead of one yaml file each
+	public boolean config_advanced_claimJournal;                    //whether the file system store appends claim changes to a journal instead of rewriting files, takes priority over region files
+	public int config_advanced_claimJournalCompactionKB;            //how big the claim journal gets before it's folded into the base file
+	public boolean config_advanced_packedPlayerData;                //whether the file system stores pack player data into shard files instead of one file per player
+	public boolean config_advanced_claimSnapshotOnShutdown;         //whether the file system stores dump all claims on a clean shutdown, so the next start can skip reading claim files
 
 	//custom log settings
 	public int config_logs_daysToKeep;
@@ -183,6 +204,7 @@ public class GriefPreventionLight extends JavaPlugin {
 	private String databaseUrl;
 	private String databaseUserName;
 	private String databasePassword;
+	private int databaseMaxConnections;                             //how many connections the database store may have open at once
 
 	//how long to wait before deciding a player is staying online or staying offline, for notication messages
 	public static final int NOTIFICATION_SECONDS = 20;
@@ -203,6 +225,12 @@ public class GriefPreventionLight extends JavaPlugin {
 		AddLogEntry(entry, CustomLogEntryTypes.Debug);
 	}
 
+	//for problems an admin should act on, shown as a warning in the server log rather than info
+	public static synchronized void AddLogWarning(String entry) {
+		AddLogEntry(entry, CustomLogEntryTypes.Debug, true);
+		log.warning(entry);
+	}
+
 	//initializes well...   everything
 	public void onEnable() {
 		instance = this;
@@ -214,14 +242,20 @@ public class GriefPreventionLight extends JavaPlugin {
 
 		AddLogEntry("Finished loading configuration.");
 
+		//background reads and writes of player data all go through here
+		this.storageExecutor = new StorageExecutor(this.config_advanced_storageThreads, this.config_advanced_storageQueueSize);
+
+		//and the file system stores write their files through here
+		this.durableFiles = new DurableFiles(DurableFiles.parseDurability(this.config_advanced_fileDurability), this.config_advanced_fileCommitIntervalMillis);
+
 		//when datastore initializes, it loads player and claim data, and posts some stats to the log
 		if(this.databaseUrl.length() > 0) {
 			try {
-				DatabaseDataStore databaseStore = new DatabaseDataStore(this.databaseUrl, this.databaseUserName, this.databasePassword);
+				DatabaseDataStore databaseStore = new DatabaseDataStore(this.databaseUrl, this.databaseUserName, this.databasePassword, this.databaseMaxConnections);
 
 				if(FlatFileDataStore.hasData()) {
 					GriefPreventionLight.AddLogEntry("There appears to be some data on the hard drive.  Migrating those data to the database...");
-					FlatFileDataStore flatFileStore = new FlatFileDataStore();
+					FlatFileDataStore flatFileStore = this.createFileDataStore();
 					this.dataStore = flatFileStore;
 					flatFileStore.migrateData(databaseStore);
 					GriefPreventionLight.AddLogEntry("Data migration process complete.");
@@ -250,7 +284,8 @@ public class GriefPreventionLight extends JavaPlugin {
 				}
 			}
 			try {
-				this.dataStore = new FlatFileDataStore();
+				//region files and the journal convert any claims still in the one file per claim layout the first time they're used
+				this.dataStore = this.createFileDataStore();
 			} catch(Exception e) {
 				GriefPreventionLight.AddLogEntry("Unable to initialize the file system data store.  Details:");
 				GriefPreventionLight.AddLogEntry(e.getMessage());
@@ -258,9 +293,11 @@ public class GriefPreventionLight extends JavaPlugin {
 			}
 		}
 
-		String dataMode = (this.dataStore instanceof FlatFileDataStore) ? "(File Mode)" : "(Database Mode)";
+		String dataMode = (this.dataStore instanceof JournalDataStore) ? "(Journal Mode)" : (this.dataStore instanceof RegionFileDataStore) ? "(Region File Mode)" : (this.dataStore instanceof FlatFileDataStore) ? "(File Mode)" : "(Database Mode)";
 		AddLogEntry("Finished loading data " + dataMode + ".");
 
+		this.claimQueries = new ClaimQueries(this.dataStore);
+
 		//unless claim block accrual is disabled, start the recurring per 10 minute event to give claim blocks to online players
 		//20L ~ 1 second
 		if(this.config_claims_blocksAccruedPerHour_default > 0) {
@@ -285,20 +322,25 @@ public class GriefPreventionLight extends JavaPlugin {
 
 		//cache offline players
 		OfflinePlayer[] offlinePlayers = this.getServer().getOfflinePlayers();
-		CacheOfflinePlayerNamesThread namesThread = new CacheOfflinePlayerNamesThread(offlinePlayers, this.playerNameToIDMap);
-		namesThread.setPriority(Thread.MIN_PRIORITY);
-		namesThread.start();
+		this.storageExecutor.execute(null, new CacheOfflinePlayerNamesTask(offlinePlayers, this.playerNameToIDMap));
 
 		//load ignore lists for any already-online players
 		@SuppressWarnings("unchecked")
 		Collection<Player> players = (Collection<Player>) GriefPreventionLight.instance.getServer().getOnlinePlayers();
 		for(Player player : players) {
-			new IgnoreLoaderThread(player.getUniqueId(), this.dataStore.getPlayerData(player.getUniqueId()).ignoredPlayers).start();
+			this.storageExecutor.execute(player.getUniqueId(), new IgnoreLoaderTask(player.getUniqueId(), this.dataStore.getPlayerData(player.getUniqueId()).ignoredPlayers));
 		}
 
 		AddLogEntry("Boot finished.");
 	}
 
+	//the file system store picked by the config
+	private FlatFileDataStore createFileDataStore() throws Exception {
+		if(this.config_advanced_claimJournal) return new JournalDataStore();
+		if(this.config_advanced_claimRegionFiles) return new RegionFileDataStore();
+		return new FlatFileDataStore();
+	}
+
 	private void loadConfig() {
 		//load the config if it exists
 		FileConfiguration config = YamlConfiguration.loadConfiguration(new File(DataStore.configFilePath));
@@ -494,10 +536,23 @@ public class GriefPreventionLight extends JavaPlugin {
 		this.databaseUrl = config.getString("GriefPrevention.Database.URL", "");
 		this.databaseUserName = config.getString("GriefPrevention.Database.UserName", "");
 		this.databasePassword = config.getString("GriefPrevention.Database.Password", "");
+		this.databaseMaxConnections = config.getInt("GriefPrevention.Database.MaxConnections", 4);
 
 		this.config_advanced_fixNegativeClaimblockAmounts = config.getBoolean("GriefPrevention.Advanced.fixNegativeClaimblockAmounts", true);
 		this.config_advanced_claim_expiration_check_rate = config.getInt("GriefPrevention.Advanced.ClaimExpirationCheckRate", 60);
 		this.config_advanced_offlineplayer_cache_days = config.getInt("GriefPrevention.Advanced.OfflinePlayer_cache_days", 90);
+		this.config_advanced_storageThreads = config.getInt("GriefPrevention.Advanced.StorageThreads", 2);
+		this.config_advanced_storageQueueSize = config.getInt("GriefPrevention.Advanced.StorageQueueSize", 1000);
+		this.config_advanced_storageShutdownTimeoutSeconds = config.getInt("GriefPrevention.Advanced.StorageShutdownTimeoutSeconds", 300);
+		this.config_advanced_fileDurability = config.getString("GriefPrevention.Advanced.FileDurability", "Batched");
+		this.config_advanced_fileCommitIntervalMillis = config.getInt("GriefPrevention.Advanced.FileCommitIntervalMillis", 50);
+		this.config_advanced_claimIDBlockSize = config.getInt("GriefPrevention.Advanced.ClaimIDBlockSize", 100);
+		this.config_advanced_claimSaveIntervalTicks = config.getInt("GriefPrevention.Advanced.ClaimSaveIntervalTicks", 20);
+		this.config_advanced_claimRegionFiles = config.getBoolean("GriefPrevention.Advanced.ClaimRegionFiles", false);
+		this.config_advanced_claimJournal = config.getBoolean("GriefPrevention.Advanced.ClaimJournal", false);
+		this.config_advanced_claimJournalCompactionKB = config.getInt("GriefPrevention.Advanced.ClaimJournalCompactionKB", 4096);
+		this.config_advanced_packedPlayerData = config.getBoolean("GriefPrevention.Advanced.PackedPlayerData", false);
+		this.config_advanced_claimSnapshotOnShutdown = config.getBoolean("GriefPrevention.Advanced.ClaimSnapshotOnShutdown", false);
 
 		//custom logger settings
 		this.config_logs_daysToKeep = config.getInt("GriefPrevention.Abridged Logs.Days To Keep", 7);
@@ -604,6 +659,7 @@ public class GriefPreventionLight extends JavaPlugin {
 		outConfig.set("GriefPrevention.Database.URL", this.databaseUrl);
 		outConfig.set("GriefPrevention.Database.UserName", this.databaseUserName);
 		outConfig.set("GriefPrevention.Database.Password", this.databasePassword);
+		outConfig.set("GriefPrevention.Database.MaxConnections", this.databaseMaxConnections);
 
 		outConfig.set("GriefPrevention.UseBanCommand", this.config_ban_useCommand);
 		outConfig.set("GriefPrevention.BanCommandPattern", this.config_ban_commandFormat);
@@ -611,6 +667,18 @@ public class GriefPreventionLight extends JavaPlugin {
 		outConfig.set("GriefPrevention.Advanced.fixNegativeClaimblockAmounts", this.config_advanced_fixNegativeClaimblockAmounts);
 		outConfig.set("GriefPrevention.Advanced.ClaimExpirationCheckRate", this.config_advanced_claim_expiration_check_rate);
 		outConfig.set("GriefPrevention.Advanced.OfflinePlayer_cache_days", this.config_advanced_offlineplayer_cache_days);
+		outConfig.set("GriefPrevention.Advanced.StorageThreads", this.config_advanced_storageThreads);
+		outConfig.set("GriefPrevention.Advanced.StorageQueueSize", this.config_advanced_storageQueueSize);
+		outConfig.set("GriefPrevention.Advanced.StorageShutdownTimeoutSeconds", this.config_advanced_storageShutdownTimeoutSeconds);
+		outConfig.set("GriefPrevention.Advanced.FileDurability", this.config_advanced_fileDurability);
+		outConfig.set("GriefPrevention.Advanced.FileCommitIntervalMillis", this.config_advanced_fileCommitIntervalMillis);
+		outConfig.set("GriefPrevention.Advanced.ClaimIDBlockSize", this.config_advanced_claimIDBlockSize);
+		outConfig.set("GriefPrevention.Advanced.ClaimSaveIntervalTicks", this.config_advanced_claimSaveIntervalTicks);
+		outConfig.set("GriefPrevention.Advanced.ClaimRegionFiles", this.config_advanced_claimRegionFiles);
+		outConfig.set("GriefPrevention.Advanced.ClaimJournal", this.config_advanced_claimJournal);
+		outConfig.set("GriefPrevention.Advanced.ClaimJournalCompactionKB", this.config_advanced_claimJournalCompactionKB);
+		outConfig.set("GriefPrevention.Advanced.PackedPlayerData", this.config_advanced_packedPlayerData);
+		outConfig.set("GriefPrevention.Advanced.ClaimSnapshotOnShutdown", this.config_advanced_claimSnapshotOnShutdown);
 
 		//custom logger settings
 		outConfig.set("GriefPrevention.Abridged Logs.Days To Keep", this.config_logs_daysToKeep);
@@ -1346,6 +1414,7 @@ public class GriefPreventionLight extends JavaPlugin {
 					claim.areExplosivesAllowed = true;
 					sendMessage(player, TextMode.Success, Messages.ExplosivesEnabled);
 				}
+				this.dataStore.refreshClaimSnapshot(claim);
 			}
 
 			return true;
@@ -2112,15 +2181,20 @@ public class GriefPreventionLight extends JavaPlugin {
 		sendMessage(player, TextMode.Success, Messages.GrantPermissionConfirmation, recipientName, permissionDescription, location);
 	}
 
+	//claim lookups which other plugins may use from any thread, unlike the data store's own methods
+	public ClaimQueries getClaimQueries() {
+		return this.claimQueries;
+	}
+
 	//helper method to resolve a player by name
 	ConcurrentHashMap<String, UUID> playerNameToIDMap = new ConcurrentHashMap<>();
 
-	//thread to build the above cache
-	private class CacheOfflinePlayerNamesThread extends Thread {
+	//task to build the above cache
+	private class CacheOfflinePlayerNamesTask implements Runnable {
 		private final OfflinePlayer[] offlinePlayers;
 		private final ConcurrentHashMap<String, UUID> playerNameToIDMap;
 
-		CacheOfflinePlayerNamesThread(OfflinePlayer[] offlinePlayers, ConcurrentHashMap<String, UUID> playerNameToIDMap) {
+		CacheOfflinePlayerNamesTask(OfflinePlayer[] offlinePlayers, ConcurrentHashMap<String, UUID> playerNameToIDMap) {
 			this.offlinePlayers = offlinePlayers;
 			this.playerNameToIDMap = playerNameToIDMap;
 		}
@@ -2213,6 +2287,18 @@ public class GriefPreventionLight extends JavaPlugin {
 			this.dataStore.savePlayerDataSync(playerID, playerData);
 		}
 
+		//write out any claim changes still waiting for the next flush
+		this.dataStore.flushClaimWrites();
+
+		//finish any saves still queued from players who already left, before the data store goes away
+		this.storageExecutor.shutdown(this.config_advanced_storageShutdownTimeoutSeconds);
+		AddLogEntry(this.dataStore.getClaimWriteStatus(), CustomLogEntryTypes.Debug);
+
+		this.dataStore.releaseClaimIDs();
+
+		//commit any batched file writes, anything the data store writes while closing is then synced right away
+		this.durableFiles.shutdown();
+
 		this.dataStore.close();
 
 		//dump any remaining unwritten log entries
@@ -9,14 +9,14 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 //loads ignore data from file into a hash map
-class IgnoreLoaderThread extends Thread {
+//runs on the storage executor
+class IgnoreLoaderTask implements Runnable {
 	private final UUID playerToLoad;
 	private final ConcurrentHashMap<UUID, Boolean> destinationMap;
 
-	IgnoreLoaderThread(UUID playerToLoad, ConcurrentHashMap<UUID, Boolean> destinationMap) {
+	IgnoreLoaderTask(UUID playerToLoad, ConcurrentHashMap<UUID, Boolean> destinationMap) {
 		this.playerToLoad = playerToLoad;
 		this.destinationMap = destinationMap;
-		this.setPriority(MIN_PRIORITY);
 	}
 
 	@Override
@@ -0,0 +1,453 @@
+package com.github.xt449.griefpreventionlight;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+//keeps claims in a base file plus an append only journal of changes, instead of rewriting a file for every change
+//saving or deleting a claim appends one small record to the current journal, which is a single sequential write
+//once the journal grows past GriefPrevention.Advanced.ClaimJournalCompactionKB, a background task folds everything into a new base file
+//and starts a new journal, then deletes the journals the new base covers
+//on startup the base is read, then every newer journal in order, stopping at a record which was only partly written when the server went down
+//player data, group bonus blocks and the next claim ID are kept exactly like the flat file store keeps them
+//
+//both files are made of the same records, numbers are big endian:
+//  header:  int magic ("GPJB" base, "GPJL" journal), int format version, long generation
+//           (for a base, the newest journal generation it covers, for a journal, its own generation)
+//  records: int payload length, int CRC32 of the payload, payload
+//  payload: byte operation, long claim id, then for a put: long world most significant bits, long world least significant bits,
+//           and the claim encoded like a region file record (see RegionFileDataStore)
+//a put always holds the whole claim, so replaying a record twice does no harm
+class JournalDataStore extends FlatFileDataStore {
+	private final static String claimJournalFolderPath = dataLayerFolderPath + File.separator + "ClaimJournal";
+	private final static String claimDataBackupFolderPath = dataLayerFolderPath + File.separator + "ClaimDataBackup";
+
+	private static final int BASE_MAGIC = 0x47504a42;
+	private static final int JOURNAL_MAGIC = 0x47504a4c;
+	private static final int FORMAT_VERSION = 1;
+	private static final String BASE_FILE_NAME = "claims.gpjb";
+	private static final String JOURNAL_FILE_EXTENSION = ".gpjl";
+
+	private static final byte OPERATION_PUT = 1;
+	private static final byte OPERATION_DELETE = 2;
+
+	//compactions get their own storage lane key, so they don't hold up claim writes longer than it takes to switch journals
+	private static final Object COMPACTION_KEY = new Object();
+
+	private final File journalFolder = new File(claimJournalFolderPath);
+
+	//the latest put payload of every claim, which is exactly what the next base file will hold
+	//this, the journal stream and the generation are guarded by this store's monitor, like the rest of its storage methods
+	private final LinkedHashMap<Long, byte[]> records = new LinkedHashMap<>();
+	private FileOutputStream journalOut;
+	private long journalGeneration;
+	private long journalBytes;
+
+	private final AtomicBoolean compactionQueued = new AtomicBoolean();
+
+	//held while a compaction writes its base file, never while waiting for this store's monitor
+	//the newest generation a base file has been written for is guarded by it, so an older base can't replace a newer one
+	private final Object baseFileLock = new Object();
+	private long baseGeneration;
+
+	JournalDataStore() throws Exception {
+		super(false);
+		this.initialize();
+	}
+
+	@Override
+	synchronized void loadClaims(File claimDataFolder) throws Exception {
+		this.readJournal();
+
+		//by world UUID, which is what the records store
+		HashMap<UUID, World> worlds = new HashMap<>();
+		for(World world : Bukkit.getServer().getWorlds()) {
+			worlds.put(world.getUID(), world);
+		}
+
+		LinkedHashMap<Claim, Long> orphans = new LinkedHashMap<>();
+		int unloadedWorldCount = 0;
+		for(Map.Entry<Long, byte[]> entry : this.records.entrySet()) {
+			ByteBuffer payload = ByteBuffer.wrap(entry.getValue());
+			payload.position(9);
+			UUID worldID = new UUID(payload.getLong(), payload.getLong());
+
+			//leave claims in worlds which aren't loaded alone, their records are kept as they are
+			World world = worlds.get(worldID);
+			if(world == null) {
+				unloadedWorldCount++;
+				continue;
+			}
+
+			try {
+				ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
+				Claim claim = RegionFileDataStore.decodeClaim(Arrays.copyOfRange(entry.getValue(), payload.position(), entry.getValue().length), world, out_parentID);
+				if(out_parentID.get(0) == -1) {
+					this.addClaim(claim, false);
+				} else {
+					orphans.put(claim, out_parentID.get(0));
+				}
+			} catch(IOException e) {
+				GriefPreventionLight.AddLogEntry("Unable to load claim " + entry.getKey() + " from the claim journal: " + e.getMessage());
+			}
+		}
+
+		//link children to parents, now that every top level claim can be found by ID
+		for(Map.Entry<Claim, Long> orphan : orphans.entrySet()) {
+			Claim child = orphan.getKey();
+			Claim parent = this.getClaim(orphan.getValue());
+			if(parent != null) {
+				child.parent = parent;
+				this.addClaim(child, false);
+			} else {
+				GriefPreventionLight.AddLogEntry("Not loading subdivision " + child.id + " because its parent claim " + orphan.getValue() + " couldn't be found.");
+			}
+		}
+
+		if(unloadedWorldCount > 0) {
+			GriefPreventionLight.AddLogEntry("Not loading " + unloadedWorldCount + " claims and subdivisions from the claim journal because their worlds aren't loaded.");
+		}
+
+		//anything still in the old one file per claim layout is converted now
+		if(RegionFileDataStore.hasClaimFiles(claimDataFolder)) {
+			this.convertClaimFiles(claimDataFolder);
+		}
+	}
+
+	//the claims came from the snapshot, but the records still have to be read so the next base file has everything
+	@Override
+	synchronized void claimsLoadedFromColumnFile() throws Exception {
+		this.readJournal();
+	}
+
+	@Override
+	long[] getClaimStorageFingerprint() {
+		long[] fingerprint = super.getClaimStorageFingerprint();
+		addToFingerprint(fingerprint, this.journalFolder);
+		return fingerprint;
+	}
+
+	//reads the base file and every journal after it into records, then starts a new journal
+	//never appending to a journal which was open when the server went down means a torn record can't end up in the middle of one
+	private void readJournal() throws IOException {
+		this.journalFolder.mkdirs();
+
+		long baseGeneration = this.readRecordFile(new File(this.journalFolder, BASE_FILE_NAME), BASE_MAGIC);
+		synchronized(this.baseFileLock) {
+			this.baseGeneration = baseGeneration;
+		}
+
+		long lastGeneration = baseGeneration;
+		int journalCount = 0;
+		for(Map.Entry<Long, File> journal : this.getJournalFiles().entrySet()) {
+			lastGeneration = Math.max(lastGeneration, journal.getKey());
+			if(journal.getKey() <= baseGeneration) continue;
+
+			this.readRecordFile(journal.getValue(), JOURNAL_MAGIC);
+			journalCount++;
+		}
+
+		this.openJournal(lastGeneration + 1);
+
+		GriefPreventionLight.AddLogEntry("Read " + this.records.size() + " claims and subdivisions from the claim base file and " + journalCount + " journals.", CustomLogEntryTypes.Debug, true);
+	}
+
+	//journal files by generation, oldest first
+	private TreeMap<Long, File> getJournalFiles() {
+		TreeMap<Long, File> journals = new TreeMap<>();
+		File[] files = this.journalFolder.listFiles((folder, name) -> name.endsWith(JOURNAL_FILE_EXTENSION));
+		if(files == null) return journals;
+
+		for(File file : files) {
+			String name = file.getName();
+			try {
+				journals.put(Long.parseLong(name.substring(0, name.length() - JOURNAL_FILE_EXTENSION.length())), file);
+			} catch(NumberFormatException e) {
+			}
+		}
+
+		return journals;
+	}
+
+	//applies every intact record in a base or journal file to records, and returns the generation from its header
+	private long readRecordFile(File file, int magic) throws IOException {
+		if(!file.exists()) return 0;
+
+		byte[] data = Files.readAllBytes(file.toPath());
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+
+		//a journal opened just before the server went down may not have its header on the disk yet, it can't hold any records either
+		if(magic == JOURNAL_MAGIC && (data.length < 16 || buffer.getInt(0) == 0)) {
+			GriefPreventionLight.AddLogEntry("Claim journal file " + file.getAbsolutePath() + " was never written to, skipping it.", CustomLogEntryTypes.Debug, true);
+			return 0;
+		}
+
+		if(data.length < 16 || buffer.getInt() != magic) {
+			throw new IOException("Not a claim journal file: " + file.getAbsolutePath());
+		}
+
+		//refuse to go on with files from a newer version, rather than compact away what we don't understand
+		int version = buffer.getInt();
+		if(version > FORMAT_VERSION) {
+			throw new IOException("Claim journal file " + file.getAbsolutePath() + " has format version " + version + ", this version of GriefPrevention only understands up to " + FORMAT_VERSION + ".");
+		}
+
+		long generation = buffer.getLong();
+
+		CRC32 crc = new CRC32();
+		while(buffer.hasRemaining()) {
+			int length = buffer.remaining() >= 8 ? buffer.getInt() : -1;
+			int checksum = length >= 0 ? buffer.getInt() : 0;
+			if(length < 9 || length > buffer.remaining()) {
+				GriefPreventionLight.AddLogEntry("Claim journal file " + file.getAbsolutePath() + " ends in the middle of a record, ignoring the rest of it.  This usually means the server stopped while saving.");
+				break;
+			}
+
+			int start = buffer.position();
+			buffer.position(start + length);
+
+			crc.reset();
+			crc.update(data, start, length);
+			if((int) crc.getValue() != checksum) {
+				GriefPreventionLight.AddLogEntry("Skipping a damaged record in claim journal file " + file.getAbsolutePath() + ".");
+				continue;
+			}
+
+			byte[] payload = Arrays.copyOfRange(data, start, start + length);
+			long claimID = ByteBuffer.wrap(payload, 1, 8).getLong();
+			if(payload[0] == OPERATION_DELETE) {
+				this.records.remove(claimID);
+			} else {
+				//a claim which changed moves to the end, so the records keep the order claims were last written in
+				this.records.remove(claimID);
+				this.records.put(claimID, payload);
+			}
+		}
+
+		return generation;
+	}
+
+	//claims which were already loaded from the journal are kept, converting only adds what's missing from them
+	//e.g. when an old claim file couldn't be moved away after an earlier conversion
+	@Override
+	void addLoadedClaim(Claim claim) {
+		if(claim.id != null && this.getClaim(claim.id) != null) return;
+
+		//a subdivision whose top level claim was skipped is already there along with it
+		if(claim.parent != null && (claim.parent.id == null || this.getClaim(claim.parent.id) != claim.parent)) return;
+
+		super.addLoadedClaim(claim);
+	}
+
+	//loads claims from one file per claim the way the flat file store does, writes them to the journal, then moves the old files out of the way
+	private void convertClaimFiles(File claimDataFolder) throws Exception {
+		GriefPreventionLight.AddLogEntry("Converting claim files to the claim journal...");
+
+		super.loadClaims(claimDataFolder);
+
+		int claimCount = 0;
+		for(Claim claim : this.claims) {
+			ArrayList<Claim> claimAndChildren = new ArrayList<>();
+			claimAndChildren.add(claim);
+			claimAndChildren.addAll(claim.children);
+			for(Claim claimToConvert : claimAndChildren) {
+				//subdivisions from very old files don't have IDs yet, saving gives them one and writes them out
+				if(claimToConvert.id == null) {
+					this.saveClaim(claimToConvert);
+					claimCount++;
+					continue;
+				}
+
+				//claims which came out of the journal are already there
+				if(this.records.containsKey(claimToConvert.id)) continue;
+
+				this.append(putRecord(claimToConvert));
+				claimCount++;
+			}
+		}
+
+		//fold it all into a base file right away, so the converted claims don't depend on one huge journal
+		this.compact();
+
+		//only move the old files once everything is safely in the new ones
+		GriefPreventionLight.instance.durableFiles.flush();
+		File backupFolder = new File(claimDataBackupFolderPath);
+		backupFolder.mkdirs();
+		File[] files = claimDataFolder.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				if(!file.isFile() || file.getName().startsWith("_")) continue;
+
+				if(!file.renameTo(new File(backupFolder, file.getName()))) {
+					GriefPreventionLight.AddLogEntry("Unable to move converted claim file " + file.getName() + " to " + backupFolder.getPath() + ".  Please move or delete it so it isn't converted again.");
+				}
+			}
+		}
+
+		GriefPreventionLight.AddLogEntry("Converted " + claimCount + " claims and subdivisions into the claim journal.  The old claim files were moved to " + backupFolder.getPath() + ".");
+	}
+
+	@Override
+	synchronized void writeClaimToStorage(Claim claim) {
+		try {
+			this.append(putRecord(claim));
+		}
+
+		//if any problem, log it
+		catch(Exception e) {
+			StringWriter errors = new StringWriter();
+			e.printStackTrace(new PrintWriter(errors));
+			GriefPreventionLight.AddLogEntry(claim.id + " " + errors.toString(), CustomLogEntryTypes.Exception);
+		}
+	}
+
+	@Override
+	synchronized void deleteClaimFromSecondaryStorage(Claim claim) {
+		if(!this.records.containsKey(claim.id)) return;
+
+		try {
+			ByteBuffer payload = ByteBuffer.allocate(9);
+			payload.put(OPERATION_DELETE);
+			payload.putLong(claim.id);
+			this.append(payload.array());
+		} catch(IOException e) {
+			GriefPreventionLight.AddLogEntry("Error: Unable to journal the deletion of claim " + claim.id + ": " + e.getMessage());
+		}
+	}
+
+	private static byte[] putRecord(Claim claim) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(160);
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeByte(OPERATION_PUT);
+		out.writeLong(claim.id);
+		out.writeLong(claim.world.getUID().getMostSignificantBits());
+		out.writeLong(claim.world.getUID().getLeastSignificantBits());
+		out.write(RegionFileDataStore.encodeClaim(claim));
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	//applies a record to records and appends it to the current journal
+	//must hold this store's monitor
+	private void append(byte[] payload) throws IOException {
+		long claimID = ByteBuffer.wrap(payload, 1, 8).getLong();
+		if(payload[0] == OPERATION_DELETE) {
+			this.records.remove(claimID);
+		} else {
+			this.records.remove(claimID);
+			this.records.put(claimID, payload);
+		}
+
+		byte[] frame = frame(payload);
+		this.journalOut.write(frame);
+		this.journalBytes += frame.length;
+		GriefPreventionLight.instance.durableFiles.sync(this.journalOut.getChannel());
+
+		if(this.journalBytes >= GriefPreventionLight.instance.config_advanced_claimJournalCompactionKB * 1024L && this.compactionQueued.compareAndSet(false, true)) {
+			GriefPreventionLight.instance.storageExecutor.execute(COMPACTION_KEY, () -> {
+				this.compactionQueued.set(false);
+				try {
+					this.compact();
+				} catch(IOException e) {
+					GriefPreventionLight.AddLogEntry("Unable to compact the claim journal, will try again once it grows some more: " + e.getMessage());
+				}
+			});
+		}
+	}
+
+	//length and checksum, then the payload, written in one go so a record is either all there or easy to spot as torn
+	private static byte[] frame(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+
+		ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+		frame.putInt(payload.length);
+		frame.putInt((int) crc.getValue());
+		frame.put(payload);
+		return frame.array();
+	}
+
+	private void openJournal(long generation) throws IOException {
+		File file = new File(this.journalFolder, generation + JOURNAL_FILE_EXTENSION);
+
+		ByteBuffer header = ByteBuffer.allocate(16);
+		header.putInt(JOURNAL_MAGIC);
+		header.putInt(FORMAT_VERSION);
+		header.putLong(generation);
+
+		this.journalOut = new FileOutputStream(file);
+		this.journalOut.write(header.array());
+
+		//synced right away, so a power cut never leaves a journal with records but a header that didn't make it
+		this.journalOut.getChannel().force(true);
+		this.journalGeneration = generation;
+		this.journalBytes = 0;
+	}
+
+	//folds every journal so far into a new base file
+	//only switching journals and copying records happens under the monitor, the base file is written while claim writes carry on
+	private void compact() throws IOException {
+		ArrayList<byte[]> payloads;
+		long coveredGeneration;
+		synchronized(this) {
+			payloads = new ArrayList<>(this.records.values());
+			coveredGeneration = this.journalGeneration;
+
+			//until the base file below is written, this journal is the only copy of its records
+			this.journalOut.getChannel().force(false);
+			this.journalOut.close();
+			this.openJournal(coveredGeneration + 1);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(BASE_MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(coveredGeneration);
+		for(byte[] payload : payloads) {
+			out.write(frame(payload));
+		}
+		out.flush();
+
+		synchronized(this.baseFileLock) {
+			//two compactions can overlap, e.g. a background one and the one on shutdown, the newer base always wins
+			if(coveredGeneration <= this.baseGeneration) return;
+
+			//the new base replaces the old one in one go, so a crash part way through leaves the old base and its journals intact
+			File baseFile = new File(this.journalFolder, BASE_FILE_NAME);
+			GriefPreventionLight.instance.durableFiles.write(baseFile, bytes.toByteArray());
+			this.baseGeneration = coveredGeneration;
+
+			//the journals the base now covers aren't needed any more, deletes are only carried out after the base is in place
+			for(Map.Entry<Long, File> journal : this.getJournalFiles().headMap(coveredGeneration, true).entrySet()) {
+				GriefPreventionLight.instance.durableFiles.delete(journal.getValue());
+			}
+		}
+
+		GriefPreventionLight.AddLogEntry("Compacted the claim journal into a base file of " + payloads.size() + " claims and subdivisions.", CustomLogEntryTypes.Debug, true);
+	}
+
+	@Override
+	synchronized void close() {
+		//leave a single base file behind, so the next start doesn't have to replay anything
+		if(this.journalOut != null) {
+			try {
+				this.compact();
+				this.journalOut.getChannel().force(false);
+				this.journalOut.close();
+			} catch(IOException e) {
+				GriefPreventionLight.AddLogEntry("Unable to compact the claim journal on shutdown, it will be replayed on the next start: " + e.getMessage());
+			}
+		}
+
+		super.close();
+	}
+}
@@ -0,0 +1,152 @@
+package com.github.xt449.griefpreventionlight;
+
+//open addressing hash map from chunk hashes to the claims touching those chunks
+//keys stay primitive longs, so looking a chunk up never allocates
+//buckets are replaced rather than modified, so an array handed out by get() never changes under the caller
+//not safe to read while another thread writes on its own: put() and remove() write keys[] and values[] one after the other with no ordering,
+//so an unlocked reader can see a slot's new key with its old value, or a slot half way through a shift
+//lock free readers are only correct because DataStore.readClaims() validates its optimistic stamp afterwards and retries under the read lock
+class LongClaimMap {
+	private static final int MIN_CAPACITY = 16;
+
+	//keys and values live in one object so a resize swaps both at once, though slots within a table are still updated in place
+	private static final class Table {
+		final long[] keys;
+		final Claim[][] values; //null marks a free slot
+		final int mask;
+
+		Table(int capacity) {
+			this.keys = new long[capacity];
+			this.values = new Claim[capacity][];
+			this.mask = capacity - 1;
+		}
+	}
+
+	private volatile Table table = new Table(MIN_CAPACITY);
+	private int size = 0;
+
+	int size() {
+		return this.size;
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	//gets the claims stored for a key, or null if there aren't any
+	Claim[] get(long key) {
+		Table table = this.table;
+		int index = indexFor(key, table.mask);
+		Claim[] value;
+		while((value = table.values[index]) != null) {
+			if(table.keys[index] == key) return value;
+			index = (index + 1) & table.mask;
+		}
+
+		return null;
+	}
+
+	//stores claims for a key, or removes the key when given null or an empty array
+	void put(long key, Claim[] value) {
+		if(value == null || value.length == 0) {
+			this.remove(key);
+			return;
+		}
+
+		Table table = this.table;
+		int index = indexFor(key, table.mask);
+		while(table.values[index] != null) {
+			if(table.keys[index] == key) {
+				table.values[index] = value;
+				return;
+			}
+			index = (index + 1) & table.mask;
+		}
+
+		//keep the load factor under 1/2 so probe chains stay short
+		if((this.size + 1) * 2 > table.keys.length) {
+			this.resize(table.keys.length * 2);
+			this.put(key, value);
+			return;
+		}
+
+		table.keys[index] = key;
+		table.values[index] = value;
+		this.size++;
+	}
+
+	void remove(long key) {
+		Table table = this.table;
+		int index = indexFor(key, table.mask);
+		while(table.values[index] != null) {
+			if(table.keys[index] == key) {
+				this.shiftBack(table, index);
+				this.size--;
+				return;
+			}
+			index = (index + 1) & table.mask;
+		}
+	}
+
+	//calls back for every key in the map
+	void forEach(Visitor visitor) {
+		Table table = this.table;
+		for(int i = 0; i < table.keys.length; i++) {
+			Claim[] value = table.values[i];
+			if(value != null) visitor.visit(table.keys[i], value);
+		}
+	}
+
+	interface Visitor {
+		void visit(long key, Claim[] claims);
+	}
+
+	//backward shift deletion, which keeps every probe chain unbroken without tombstones
+	private void shiftBack(Table table, int freed) {
+		int index = freed;
+		while(true) {
+			index = (index + 1) & table.mask;
+			Claim[] value = table.values[index];
+			if(value == null) break;
+
+			int home = indexFor(table.keys[index], table.mask);
+
+			//only move the entry if its home slot isn't between the freed slot and where it sits now
+			boolean movable = (freed <= index) ? (home <= freed || home > index) : (home <= freed && home > index);
+			if(movable) {
+				table.keys[freed] = table.keys[index];
+				table.values[freed] = value;
+				freed = index;
+			}
+		}
+
+		table.values[freed] = null;
+		table.keys[freed] = 0;
+	}
+
+	private void resize(int capacity) {
+		Table oldTable = this.table;
+		Table newTable = new Table(capacity);
+		for(int i = 0; i < oldTable.keys.length; i++) {
+			Claim[] value = oldTable.values[i];
+			if(value == null) continue;
+
+			int index = indexFor(oldTable.keys[i], newTable.mask);
+			while(newTable.values[index] != null) {
+				index = (index + 1) & newTable.mask;
+			}
+			newTable.keys[index] = oldTable.keys[i];
+			newTable.values[index] = value;
+		}
+
+		this.table = newTable;
+	}
+
+	private static int indexFor(long key, int mask) {
+		//chunk hashes keep x and z in separate halves, so mix them before masking
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key & mask;
+	}
+}
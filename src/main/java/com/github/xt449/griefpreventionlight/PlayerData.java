@@ -115,6 +115,9 @@ public class PlayerData {
 	public ConcurrentHashMap<UUID, Boolean> ignoredPlayers = new ConcurrentHashMap<>();
 	public boolean ignoreListChanged = false;
 
+	//whether the ignore list was already read while the player was logging in
+	volatile boolean ignoreListLoaded = false;
+
 	//profanity warning, once per play session
 	boolean profanityWarned = false;
 
@@ -169,8 +172,11 @@ public class PlayerData {
 
 	private void loadDataFromSecondaryStorage() {
 		//reach out to secondary storage to get any data there
-		PlayerData storageData = GriefPreventionLight.instance.dataStore.getPlayerDataFromStorage(this.playerID);
+		this.loadDataFrom(GriefPreventionLight.instance.dataStore.getPlayerDataFromStorage(this.playerID));
+	}
 
+	//fills in whatever hasn't been loaded yet from data read out of secondary storage
+	void loadDataFrom(PlayerData storageData) {
 		if(this.accruedClaimBlocks == null) {
 			if(storageData.accruedClaimBlocks != null) {
 				this.accruedClaimBlocks = storageData.accruedClaimBlocks;
@@ -201,16 +207,9 @@ public class PlayerData {
 			//find all the claims belonging to this player and note them for future reference
 			DataStore dataStore = GriefPreventionLight.instance.dataStore;
 			int totalClaimsArea = 0;
-			for(int i = 0; i < dataStore.claims.size(); i++) {
-				Claim claim = dataStore.claims.get(i);
-				if(!claim.inDataStore) {
-					dataStore.claims.remove(i--);
-					continue;
-				}
-				if(playerID.equals(claim.ownerID)) {
-					this.claims.add(claim);
-					totalClaimsArea += claim.getArea();
-				}
+			for(Claim claim : dataStore.getClaimsOwnedBy(this.playerID)) {
+				this.claims.add(claim);
+				totalClaimsArea += claim.getArea();
 			}
 
 			//ensure player has claim blocks for his claims, and at least the minimum accrued
@@ -0,0 +1,243 @@
+package com.github.xt449.griefpreventionlight;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+//player claim blocks for the file system stores, packed into a fixed set of shard files instead of one file per player
+//a player's shard is picked from a hash of their UUID, and a shard is only read the first time one of its players is looked up
+//every player has one fixed size record in their shard, so saving a player overwrites 24 bytes in place instead of rewriting a file
+//group bonus blocks go in one small text file of their own, which is rewritten whole whenever one changes
+//ignore lists aren't kept here, they stay in their own files in the player data folder like before
+//
+//shard layout, numbers are big endian:
+//  header:  int magic "GPPD", int format version
+//  records: long UUID most significant bits, long UUID least significant bits, int accrued blocks, int bonus blocks
+//a record which was only partly appended when the server went down is ignored, along with anything after it
+//
+//group file layout: one line per group, "<bonus blocks> <group name>"
+class PlayerDataShards {
+	private static final int MAGIC = 0x47505044;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_LENGTH = 8;
+	private static final int RECORD_LENGTH = 24;
+	private static final int SHARD_COUNT = 256;
+	private static final String SHARD_FILE_EXTENSION = ".gpp";
+	private static final String GROUP_FILE_NAME = "groups.txt";
+
+	private static final class Shard {
+		final File file;
+
+		//record index by player, all guarded by the shard
+		final HashMap<UUID, Integer> recordIndexes = new HashMap<>();
+		FileChannel channel;
+
+		Shard(File file) {
+			this.file = file;
+		}
+	}
+
+	private final File folder;
+	private final Shard[] shards = new Shard[SHARD_COUNT];
+
+	PlayerDataShards(File folder) {
+		this.folder = folder;
+		for(int i = 0; i < SHARD_COUNT; i++) {
+			this.shards[i] = new Shard(new File(folder, String.format("%02x", i) + SHARD_FILE_EXTENSION));
+		}
+	}
+
+	//whether anything has been written here yet
+	boolean exists() {
+		return new File(this.folder, GROUP_FILE_NAME).exists();
+	}
+
+	private Shard getShard(UUID playerID) {
+		long bits = playerID.getMostSignificantBits() ^ playerID.getLeastSignificantBits();
+		int hash = (int) (bits ^ (bits >>> 32));
+		hash ^= hash >>> 16;
+		hash ^= hash >>> 8;
+		return this.shards[hash & (SHARD_COUNT - 1)];
+	}
+
+	//opens a shard and indexes its records, the first time it's needed
+	//must hold the shard's monitor
+	private void openShard(Shard shard) throws IOException {
+		if(shard.channel != null) return;
+
+		this.folder.mkdirs();
+		FileChannel channel = FileChannel.open(shard.file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		try {
+			long size = channel.size();
+			if(size < HEADER_LENGTH) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+				header.putInt(MAGIC);
+				header.putInt(FORMAT_VERSION);
+				header.flip();
+				channel.truncate(0);
+				channel.write(header, 0);
+				size = HEADER_LENGTH;
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while(buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+			}
+			buffer.flip();
+
+			if(buffer.getInt() != MAGIC) {
+				throw new IOException("Not a player data shard: " + shard.file.getAbsolutePath());
+			}
+
+			//refuse to touch files from a newer version, rather than risk overwriting records we don't understand
+			int version = buffer.getInt();
+			if(version > FORMAT_VERSION) {
+				throw new IOException("Player data shard " + shard.file.getAbsolutePath() + " has format version " + version + ", this version of GriefPrevention only understands up to " + FORMAT_VERSION + ".");
+			}
+
+			int recordCount = buffer.remaining() / RECORD_LENGTH;
+			for(int i = 0; i < recordCount; i++) {
+				UUID playerID = new UUID(buffer.getLong(), buffer.getLong());
+				buffer.position(buffer.position() + 8);
+				shard.recordIndexes.put(playerID, i);
+			}
+
+			//drop a torn record from the end, so the next one appended lines up again
+			long recordsEnd = HEADER_LENGTH + (long) recordCount * RECORD_LENGTH;
+			if(size > recordsEnd) {
+				GriefPreventionLight.AddLogEntry("Player data shard " + shard.file.getAbsolutePath() + " ends in the middle of a record, ignoring the rest of it.  This usually means the server stopped while saving.");
+				channel.truncate(recordsEnd);
+			}
+		} catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		shard.channel = channel;
+	}
+
+	//fills in a player's claim blocks, returns false if there's no record for them
+	boolean read(UUID playerID, PlayerData playerData) throws IOException {
+		Shard shard = this.getShard(playerID);
+		synchronized(shard) {
+			this.openShard(shard);
+
+			Integer recordIndex = shard.recordIndexes.get(playerID);
+			if(recordIndex == null) return false;
+
+			ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH);
+			long position = HEADER_LENGTH + (long) recordIndex * RECORD_LENGTH;
+			while(record.hasRemaining() && shard.channel.read(record, position + record.position()) >= 0) {
+			}
+			record.flip();
+
+			record.position(16);
+			playerData.setAccruedClaimBlocks(record.getInt());
+			playerData.setBonusClaimBlocks(record.getInt());
+			return true;
+		}
+	}
+
+	//overwrites a player's record, or appends one for a new player
+	void write(UUID playerID, int accruedClaimBlocks, int bonusClaimBlocks) throws IOException {
+		Shard shard = this.getShard(playerID);
+		synchronized(shard) {
+			this.openShard(shard);
+
+			Integer recordIndex = shard.recordIndexes.get(playerID);
+			if(recordIndex == null) {
+				recordIndex = shard.recordIndexes.size();
+				shard.recordIndexes.put(playerID, recordIndex);
+			}
+
+			ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH);
+			record.putLong(playerID.getMostSignificantBits());
+			record.putLong(playerID.getLeastSignificantBits());
+			record.putInt(accruedClaimBlocks);
+			record.putInt(bonusClaimBlocks);
+			record.flip();
+
+			long position = HEADER_LENGTH + (long) recordIndex * RECORD_LENGTH;
+			while(record.hasRemaining()) {
+				shard.channel.write(record, position + record.position());
+			}
+
+			GriefPreventionLight.instance.durableFiles.sync(shard.channel);
+		}
+	}
+
+	//every player with a record, reading every shard
+	List<UUID> getPlayerIDs() throws IOException {
+		ArrayList<UUID> playerIDs = new ArrayList<>();
+		for(Shard shard : this.shards) {
+			if(!shard.file.exists()) continue;
+
+			synchronized(shard) {
+				this.openShard(shard);
+				playerIDs.addAll(shard.recordIndexes.keySet());
+			}
+		}
+
+		return playerIDs;
+	}
+
+	Map<String, Integer> readGroupBonusBlocks() throws IOException {
+		HashMap<String, Integer> groupBonusBlocks = new HashMap<>();
+		byte[] contents = GriefPreventionLight.instance.durableFiles.read(new File(this.folder, GROUP_FILE_NAME));
+		if(contents == null) return groupBonusBlocks;
+
+		BufferedReader reader = new BufferedReader(new StringReader(new String(contents, StandardCharsets.UTF_8)));
+		String line;
+		while((line = reader.readLine()) != null) {
+			int space = line.indexOf(' ');
+			if(space <= 0 || space == line.length() - 1) continue;
+
+			try {
+				groupBonusBlocks.put(line.substring(space + 1), Integer.parseInt(line.substring(0, space)));
+			} catch(NumberFormatException e) {
+				GriefPreventionLight.AddLogEntry("Ignoring a bad line in the group bonus blocks file: " + line);
+			}
+		}
+
+		return groupBonusBlocks;
+	}
+
+	//rewrites the group file with every group's current bonus blocks
+	void writeGroupBonusBlocks(Map<String, Integer> groupBonusBlocks) throws IOException {
+		StringBuilder contents = new StringBuilder();
+		for(Map.Entry<String, Integer> group : new TreeMap<>(groupBonusBlocks).entrySet()) {
+			contents.append(group.getValue()).append(' ').append(group.getKey()).append('\n');
+		}
+
+		GriefPreventionLight.instance.durableFiles.write(new File(this.folder, GROUP_FILE_NAME), contents.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	//makes sure every record written so far is on the disk
+	void flush() throws IOException {
+		for(Shard shard : this.shards) {
+			synchronized(shard) {
+				if(shard.channel != null) shard.channel.force(false);
+			}
+		}
+	}
+
+	void close() {
+		for(Shard shard : this.shards) {
+			synchronized(shard) {
+				if(shard.channel == null) continue;
+
+				try {
+					shard.channel.force(false);
+					shard.channel.close();
+				} catch(IOException e) {
+					GriefPreventionLight.AddLogEntry("Unable to close player data shard " + shard.file.getAbsolutePath() + ": " + e.getMessage());
+				}
+
+				shard.channel = null;
+				shard.recordIndexes.clear();
+			}
+		}
+	}
+}
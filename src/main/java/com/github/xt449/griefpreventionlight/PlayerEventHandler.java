@@ -67,7 +67,7 @@ class PlayerEventHandler implements Listener {
 	private final ArrayList<Long> recentLoginLogoutNotifications = new ArrayList<>();
 
 	//regex pattern for the "how do i claim land?" scanner
-	private Pattern howToClaimPattern = null;
+	private volatile Pattern howToClaimPattern = null;
 
 	//matcher for banned words
 	private final WordFinder bannedWordFinder;
@@ -95,8 +95,9 @@ class PlayerEventHandler implements Listener {
 	}
 
 	//when a player chats, monitor for spam
+	//runs on the async chat threads, possibly several at once, so everything in here has to be thread safe
 	@EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
-	synchronized void onPlayerChat(AsyncPlayerChatEvent event) {
+	void onPlayerChat(AsyncPlayerChatEvent event) {
 		Player player = event.getPlayer();
 		if(!player.isOnline()) {
 			event.setCancelled(true);
@@ -156,10 +157,12 @@ class PlayerEventHandler implements Listener {
 			}
 
 			//otherwise assume chat troll and mute all chat from this sender until an admin says otherwise
+			//a second message racing in on another chat thread mustn't toggle the mute back off
 			else if(instance.config_trollFilterEnabled) {
-				GriefPreventionLight.AddLogEntry("Auto-muted new player " + player.getName() + " for profanity shortly after join.  Use /SoftMute to undo.", CustomLogEntryTypes.AdminActivity);
 				GriefPreventionLight.AddLogEntry(notificationMessage, CustomLogEntryTypes.MutedChat, false);
-				instance.dataStore.toggleSoftMute(player.getUniqueId());
+				if(instance.dataStore.softMute(player.getUniqueId())) {
+					GriefPreventionLight.AddLogEntry("Auto-muted new player " + player.getName() + " for profanity shortly after join.  Use /SoftMute to undo.", CustomLogEntryTypes.AdminActivity);
+				}
 			}
 		}
 
@@ -292,7 +295,7 @@ class PlayerEventHandler implements Listener {
 
 	//when a player uses a slash command...
 	@EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
-	synchronized void onPlayerCommandPreprocess(PlayerCommandPreprocessEvent event) {
+	void onPlayerCommandPreprocess(PlayerCommandPreprocessEvent event) {
 		String message = event.getMessage();
 		String[] args = message.split(" ");
 
@@ -465,7 +468,7 @@ class PlayerEventHandler implements Listener {
 		return category;
 	}
 
-	static int longestNameLength = 10;
+	static volatile int longestNameLength = 10;
 
 	static void makeSocialLogEntry(String name, String message) {
 		StringBuilder entryBuilder = new StringBuilder(name);
@@ -522,6 +525,22 @@ class PlayerEventHandler implements Listener {
 		playerData.ipAddress = event.getAddress();
 	}
 
+	//while a player is still logging in, read his data on this async thread so joining doesn't have to
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+		if(event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+		this.dataStore.prefetchPlayerData(event.getUniqueId(), 5000);
+	}
+
+	//a login refused after the data was read ahead, e.g. by a ban, the whitelist or a full server, never gets to pick it up
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerLoginMonitor(PlayerLoginEvent event) {
+		if(event.getResult() != Result.ALLOWED) {
+			this.dataStore.discardPrefetchedPlayerData(event.getPlayer().getUniqueId());
+		}
+	}
+
 	//when a player successfully joins the server...
 
 	@EventHandler(ignoreCancelled = true, priority = EventPriority.HIGHEST)
@@ -644,8 +663,10 @@ class PlayerEventHandler implements Listener {
 			}
 		}
 
-		//create a thread to load ignore information
-		new IgnoreLoaderThread(playerID, playerData.ignoredPlayers).start();
+		//load ignore information in the background, unless it was already read during login
+		if(!playerData.ignoreListLoaded) {
+			instance.storageExecutor.execute(playerID, new IgnoreLoaderTask(playerID, playerData.ignoredPlayers));
+		}
 
 		//is he stuck in a portal frame?
 		if(player.hasMetadata("GP_PORTALRESCUE")) {
@@ -1140,7 +1161,7 @@ class PlayerEventHandler implements Listener {
 			if(clickedBlockType != Material.TURTLE_EGG)
 				return;
 			playerData = this.dataStore.getPlayerData(player.getUniqueId());
-			Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 			if(claim != null) {
 				playerData.lastClaim = claim;
 
@@ -1160,7 +1181,7 @@ class PlayerEventHandler implements Listener {
 				byte lightLevel = adjacentBlock.getLightFromBlocks();
 				if(lightLevel == 15 && adjacentBlock.getType() == Material.FIRE) {
 					playerData = this.dataStore.getPlayerData(player.getUniqueId());
-					Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+					Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 					if(claim != null) {
 						playerData.lastClaim = claim;
 
@@ -1206,7 +1227,7 @@ class PlayerEventHandler implements Listener {
 
 
 			//otherwise check permissions for the claim the player is in
-			Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 			if(claim != null) {
 				playerData.lastClaim = claim;
 
@@ -1231,7 +1252,7 @@ class PlayerEventHandler implements Listener {
 
 						instance.config_claims_lockFenceGates && Tag.FENCE_GATES.isTagged(clickedBlockType))) {
 			if(playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-			Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 			if(claim != null) {
 				playerData.lastClaim = claim;
 
@@ -1246,7 +1267,7 @@ class PlayerEventHandler implements Listener {
 		//otherwise apply rules for buttons and switches
 		else if(clickedBlock != null && instance.config_claims_preventButtonsSwitches && (Tag.BUTTONS.isTagged(clickedBlockType) || clickedBlockType == Material.LEVER)) {
 			if(playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-			Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 			if(claim != null) {
 				playerData.lastClaim = claim;
 
@@ -1261,7 +1282,7 @@ class PlayerEventHandler implements Listener {
 		//otherwise apply rule for cake
 		else if(clickedBlock != null && instance.config_claims_preventTheft && clickedBlockType == Material.CAKE) {
 			if(playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-			Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 			if(claim != null) {
 				playerData.lastClaim = claim;
 
@@ -1285,7 +1306,7 @@ class PlayerEventHandler implements Listener {
 								Tag.FLOWER_POTS.isTagged(clickedBlockType)
 				)) {
 			if(playerData == null) playerData = this.dataStore.getPlayerData(player.getUniqueId());
-			Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 			if(claim != null) {
 				String noBuildReason = claim.allowBuild(player);
 				if(noBuildReason != null) {
@@ -1347,7 +1368,7 @@ class PlayerEventHandler implements Listener {
 							materialInHand == Material.TNT_MINECART ||
 							materialInHand == Material.HOPPER_MINECART)) {
 				playerData = this.dataStore.getPlayerData(player.getUniqueId());
-				Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+				Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 				if(claim != null) {
 					String reason = claim.allowContainers(player);
 					if(reason != null) {
@@ -1411,7 +1432,7 @@ class PlayerEventHandler implements Listener {
 				}
 
 				playerData = this.dataStore.getPlayerData(player.getUniqueId());
-				Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+				Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 
 				//no claim case
 				if(claim == null) {
@@ -1539,7 +1560,7 @@ class PlayerEventHandler implements Listener {
 			}
 
 			//otherwise, since not currently resizing a claim, must be starting a resize, creating a new claim, or creating a subdivision
-			Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(clickedBlock.getWorld(), clickedBlock.getX(), clickedBlock.getZ(), playerData.lastClaim);
 
 			//if within an existing claim, he's not creating a new one
 			if(claim != null) {
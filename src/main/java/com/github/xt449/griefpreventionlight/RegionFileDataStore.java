@@ -0,0 +1,485 @@
+package com.github.xt449.griefpreventionlight;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.CRC32;
+
+//keeps claims in compact binary region files instead of one yaml file per claim
+//each world gets a folder named after its UUID, holding one file for every 512x512 block region with claims in it
+//a claim goes in the region of its lesser boundary corner, subdivisions too, and is linked to its parent by ID while loading
+//player data, group bonus blocks and the next claim ID are kept exactly like the flat file store keeps them
+//
+//file layout, numbers are big endian:
+//  header:  int magic "GPCR", int format version
+//  records: int payload length, int CRC32 of the payload, payload
+//  payload: long id, long parent id (-1 for top level claims),
+//           int lesser x, int lesser z, int greater x, int greater z,
+//           boolean has owner, [long owner most significant bits, long owner least significant bits],
+//           boolean inherit nothing, long modified date,
+//           then builders, containers, accessors and managers, each an int count followed by that many UTF strings
+class RegionFileDataStore extends FlatFileDataStore {
+	private final static String claimRegionFolderPath = dataLayerFolderPath + File.separator + "ClaimRegions";
+	private final static String claimDataBackupFolderPath = dataLayerFolderPath + File.separator + "ClaimDataBackup";
+
+	private static final int MAGIC = 0x47504352;
+	private static final int FORMAT_VERSION = 1;
+	private static final int REGION_SHIFT = 9;
+	private static final String REGION_FILE_EXTENSION = ".gpr";
+
+	//a region file's records by claim ID, kept in memory so changing one claim doesn't mean reading the file back first
+	private static final class Region {
+		final File file;
+		final LinkedHashMap<Long, byte[]> records = new LinkedHashMap<>();
+
+		Region(File file) {
+			this.file = file;
+		}
+	}
+
+	//both guarded by this store's monitor, like the rest of its storage methods
+	private final HashMap<File, Region> regions = new HashMap<>();
+	private final HashMap<Long, Region> claimIDToRegionMap = new HashMap<>();
+
+	RegionFileDataStore() throws Exception {
+		super(false);
+		this.initialize();
+	}
+
+	@Override
+	synchronized void loadClaims(File claimDataFolder) throws Exception {
+		//by world UUID, which is what the folders are named after
+		HashMap<UUID, World> worlds = new HashMap<>();
+		for(World world : Bukkit.getServer().getWorlds()) {
+			worlds.put(world.getUID(), world);
+		}
+
+		LinkedHashMap<Claim, Long> orphans = new LinkedHashMap<>();
+		int regionCount = 0;
+		File[] worldFolders = new File(claimRegionFolderPath).listFiles(File::isDirectory);
+		if(worldFolders != null) {
+			for(File worldFolder : worldFolders) {
+				UUID worldID;
+				try {
+					worldID = UUID.fromString(worldFolder.getName());
+				} catch(IllegalArgumentException e) {
+					continue;
+				}
+
+				File[] regionFiles = worldFolder.listFiles((folder, name) -> name.endsWith(REGION_FILE_EXTENSION));
+				if(regionFiles == null || regionFiles.length == 0) continue;
+
+				//leave claims in worlds which aren't loaded alone, their files are only read if something gets written next to them
+				World world = worlds.get(worldID);
+				if(world == null) {
+					GriefPreventionLight.AddLogEntry("Not loading claims from " + regionFiles.length + " region files in " + worldFolder.getName() + " because that world isn't loaded.");
+					continue;
+				}
+
+				ArrayList<Region> worldRegions = new ArrayList<>();
+				for(File regionFile : regionFiles) {
+					Region region = new Region(regionFile);
+					this.regions.put(regionFile, region);
+					this.readRegion(region);
+					worldRegions.add(region);
+					regionCount++;
+				}
+
+				//claims are only built once every region is read, so of any claim with two records it's the newer one which is left
+				for(Region region : worldRegions) {
+					for(Map.Entry<Long, byte[]> record : region.records.entrySet()) {
+						try {
+							ArrayList<Long> out_parentID = new ArrayList<>();  //hacky output parameter
+							Claim claim = decodeClaim(record.getValue(), world, out_parentID);
+							if(out_parentID.get(0) == -1) {
+								this.addClaim(claim, false);
+							} else {
+								orphans.put(claim, out_parentID.get(0));
+							}
+						} catch(IOException e) {
+							GriefPreventionLight.AddLogEntry("Unable to load claim " + record.getKey() + " from region file " + region.file.getAbsolutePath() + ": " + e.getMessage());
+						}
+					}
+				}
+			}
+		}
+
+		//link children to parents, now that every top level claim can be found by ID
+		for(Map.Entry<Claim, Long> orphan : orphans.entrySet()) {
+			Claim child = orphan.getKey();
+			Claim parent = this.getClaim(orphan.getValue());
+			if(parent != null) {
+				child.parent = parent;
+				this.addClaim(child, false);
+			} else {
+				GriefPreventionLight.AddLogEntry("Not loading subdivision " + child.id + " because its parent claim " + orphan.getValue() + " couldn't be found.");
+			}
+		}
+
+		GriefPreventionLight.AddLogEntry("Read " + this.claimIDToRegionMap.size() + " claims and subdivisions from " + regionCount + " region files.", CustomLogEntryTypes.Debug, true);
+
+		//anything still in the old one file per claim layout is converted now
+		if(hasClaimFiles(claimDataFolder)) {
+			this.convertClaimFiles(claimDataFolder);
+		}
+	}
+
+	@Override
+	long[] getClaimStorageFingerprint() {
+		long[] fingerprint = super.getClaimStorageFingerprint();
+		addToFingerprint(fingerprint, new File(claimRegionFolderPath));
+		return fingerprint;
+	}
+
+	//the claims came from the snapshot, but the region records still have to be indexed so changes land in the right files
+	@Override
+	synchronized void claimsLoadedFromColumnFile() throws Exception {
+		File[] worldFolders = new File(claimRegionFolderPath).listFiles(File::isDirectory);
+		if(worldFolders == null) return;
+
+		for(File worldFolder : worldFolders) {
+			File[] regionFiles = worldFolder.listFiles((folder, name) -> name.endsWith(REGION_FILE_EXTENSION));
+			if(regionFiles == null) continue;
+
+			for(File regionFile : regionFiles) {
+				Region region = new Region(regionFile);
+				this.regions.put(regionFile, region);
+				this.readRegion(region);
+			}
+		}
+	}
+
+	//whether there are any claim files in the flat file store's layout
+	static boolean hasClaimFiles(File claimDataFolder) {
+		File[] files = claimDataFolder.listFiles();
+		if(files == null) return false;
+
+		for(File file : files) {
+			if(file.isFile() && !file.getName().startsWith("_")) return true;
+		}
+
+		return false;
+	}
+
+	//claims which were already loaded from region files are kept, converting only adds what's missing from them
+	//e.g. when an old claim file couldn't be moved away after an earlier conversion
+	@Override
+	void addLoadedClaim(Claim claim) {
+		if(claim.id != null && this.getClaim(claim.id) != null) return;
+
+		//a subdivision whose top level claim was skipped is already there along with it
+		if(claim.parent != null && (claim.parent.id == null || this.getClaim(claim.parent.id) != claim.parent)) return;
+
+		super.addLoadedClaim(claim);
+	}
+
+	//loads claims from one file per claim the way the flat file store does, writes them to region files, then moves the old files out of the way
+	private void convertClaimFiles(File claimDataFolder) throws Exception {
+		GriefPreventionLight.AddLogEntry("Converting claim files to region files...");
+
+		super.loadClaims(claimDataFolder);
+
+		int claimCount = 0;
+		Set<Region> changedRegions = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(Claim claim : this.claims) {
+			ArrayList<Claim> claimAndChildren = new ArrayList<>();
+			claimAndChildren.add(claim);
+			claimAndChildren.addAll(claim.children);
+			for(Claim claimToConvert : claimAndChildren) {
+				//subdivisions from very old files don't have IDs yet, saving gives them one and writes them out
+				if(claimToConvert.id == null) {
+					this.saveClaim(claimToConvert);
+					claimCount++;
+					continue;
+				}
+
+				//claims which came out of region files are already there
+				if(this.claimIDToRegionMap.containsKey(claimToConvert.id)) continue;
+
+				changedRegions.add(this.putRecord(claimToConvert));
+				claimCount++;
+			}
+		}
+
+		for(Region region : changedRegions) {
+			writeRegion(region);
+		}
+
+		//only move the old files once everything is safely in the new ones
+		GriefPreventionLight.instance.durableFiles.flush();
+		File backupFolder = new File(claimDataBackupFolderPath);
+		backupFolder.mkdirs();
+		File[] files = claimDataFolder.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				if(!file.isFile() || file.getName().startsWith("_")) continue;
+
+				if(!file.renameTo(new File(backupFolder, file.getName()))) {
+					GriefPreventionLight.AddLogEntry("Unable to move converted claim file " + file.getName() + " to " + backupFolder.getPath() + ".  Please move or delete it so it isn't converted again.");
+				}
+			}
+		}
+
+		GriefPreventionLight.AddLogEntry("Converted " + claimCount + " claims and subdivisions into " + changedRegions.size() + " region files.  The old claim files were moved to " + backupFolder.getPath() + ".");
+	}
+
+	@Override
+	synchronized void writeClaimToStorage(Claim claim) {
+		try {
+			Region previousRegion = this.claimIDToRegionMap.get(claim.id);
+			Region region = this.putRecord(claim);
+			writeRegion(region);
+
+			//a resize can move a claim to another region, drop it from the old one only after the new one is written
+			if(previousRegion != null && previousRegion != region) {
+				previousRegion.records.remove(claim.id);
+				writeRegion(previousRegion);
+			}
+		}
+
+		//if any problem, log it
+		catch(Exception e) {
+			StringWriter errors = new StringWriter();
+			e.printStackTrace(new PrintWriter(errors));
+			GriefPreventionLight.AddLogEntry(claim.id + " " + errors.toString(), CustomLogEntryTypes.Exception);
+		}
+	}
+
+	@Override
+	synchronized void deleteClaimFromSecondaryStorage(Claim claim) {
+		Region region = this.claimIDToRegionMap.remove(claim.id);
+		if(region == null) return;
+
+		region.records.remove(claim.id);
+		try {
+			writeRegion(region);
+		} catch(IOException e) {
+			GriefPreventionLight.AddLogEntry("Error: Unable to delete claim " + claim.id + " from region file \"" + region.file.getAbsolutePath() + "\": " + e.getMessage());
+		}
+	}
+
+	//encodes a claim into the region it belongs in, without writing the file
+	private Region putRecord(Claim claim) throws IOException {
+		Region region = this.getRegion(claim);
+		region.records.put(claim.id, encodeClaim(claim));
+		this.claimIDToRegionMap.put(claim.id, region);
+
+		return region;
+	}
+
+	//gets the region a claim belongs in, reading what's already in its file if it hasn't been read yet
+	private Region getRegion(Claim claim) throws IOException {
+		File worldFolder = new File(claimRegionFolderPath, claim.world.getUID().toString());
+		int regionX = claim.lesserBoundaryCorner.x >> REGION_SHIFT;
+		int regionZ = claim.lesserBoundaryCorner.z >> REGION_SHIFT;
+		File file = new File(worldFolder, regionX + "." + regionZ + REGION_FILE_EXTENSION);
+
+		Region region = this.regions.get(file);
+		if(region == null) {
+			region = new Region(file);
+
+			//could be a world which loaded after startup, don't throw away what's in there
+			if(file.exists()) {
+				this.readRegion(region);
+			}
+
+			this.regions.put(file, region);
+		}
+
+		return region;
+	}
+
+	//reads every intact record from a region file into the region, without building any claims
+	//a file which is too short or has the wrong magic number, e.g. renamed into place but never synced before a crash, is moved aside so the rest still load
+	private void readRegion(Region region) throws IOException {
+		byte[] data = Files.readAllBytes(region.file.toPath());
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+
+		if(data.length < 8 || buffer.getInt() != MAGIC) {
+			File quarantineFile = new File(region.file.getParentFile(), "_" + region.file.getName() + "." + System.currentTimeMillis() + ".damaged");
+			GriefPreventionLight.AddLogWarning("Claim region file " + region.file.getAbsolutePath() + " is damaged, moving it to " + quarantineFile.getName() + " and loading without it.  This usually means the server stopped while saving.");
+			if(!region.file.renameTo(quarantineFile)) {
+				GriefPreventionLight.AddLogWarning("Unable to move damaged claim region file " + region.file.getAbsolutePath() + ", it will be overwritten the next time a claim in it is saved.");
+			}
+
+			return;
+		}
+
+		//refuse to touch files from a newer version, rather than risk rewriting them without what we don't understand
+		int version = buffer.getInt();
+		if(version > FORMAT_VERSION) {
+			throw new IOException("Claim region file " + region.file.getAbsolutePath() + " has format version " + version + ", this version of GriefPrevention only understands up to " + FORMAT_VERSION + ".");
+		}
+
+		//regions which lost a duplicate record and have to be rewritten without it
+		Set<Region> staleRegions = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		CRC32 crc = new CRC32();
+		while(buffer.hasRemaining()) {
+			int length = buffer.remaining() >= 8 ? buffer.getInt() : -1;
+			int checksum = length >= 0 ? buffer.getInt() : 0;
+			if(length < 0 || length > buffer.remaining()) {
+				GriefPreventionLight.AddLogEntry("Claim region file " + region.file.getAbsolutePath() + " ends in the middle of a record, ignoring the rest of it.  This usually means the server ran out of storage space while saving.");
+				break;
+			}
+
+			int start = buffer.position();
+			buffer.position(start + length);
+
+			crc.reset();
+			crc.update(data, start, length);
+			if((int) crc.getValue() != checksum) {
+				GriefPreventionLight.AddLogEntry("Skipping a damaged claim record in region file " + region.file.getAbsolutePath() + ".");
+				continue;
+			}
+
+			byte[] record = Arrays.copyOfRange(data, start, start + length);
+			long claimID = ByteBuffer.wrap(record).getLong();
+
+			//a crash while a resize moved a claim between regions leaves a record in both, the newer one is the claim as it was last saved
+			Region otherRegion = this.claimIDToRegionMap.get(claimID);
+			if(otherRegion != null && otherRegion != region) {
+				if(getModifiedDate(record) <= getModifiedDate(otherRegion.records.get(claimID))) {
+					GriefPreventionLight.AddLogEntry("Dropping an older copy of claim " + claimID + " from region file " + region.file.getAbsolutePath() + ".");
+					staleRegions.add(region);
+					continue;
+				}
+
+				GriefPreventionLight.AddLogEntry("Dropping an older copy of claim " + claimID + " from region file " + otherRegion.file.getAbsolutePath() + ".");
+				otherRegion.records.remove(claimID);
+				staleRegions.add(otherRegion);
+			}
+
+			region.records.put(claimID, record);
+			this.claimIDToRegionMap.put(claimID, region);
+		}
+
+		for(Region staleRegion : staleRegions) {
+			writeRegion(staleRegion);
+		}
+	}
+
+	//the modified date of a record made by encodeClaim()
+	private static long getModifiedDate(byte[] record) {
+		int position = 32;  //id, parent id and both corners
+		if(record[position++] != 0) position += 16;  //owner
+		position++;  //inherit nothing
+		return ByteBuffer.wrap(record).getLong(position);
+	}
+
+	//rewrites a region file from its records, or deletes it once it has none
+	//the new file replaces the old one in one go (see DurableFiles), so a crash part way through leaves the old file intact
+	private static void writeRegion(Region region) throws IOException {
+		if(region.records.isEmpty()) {
+			GriefPreventionLight.instance.durableFiles.delete(region.file);
+			return;
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+
+		CRC32 crc = new CRC32();
+		for(byte[] record : region.records.values()) {
+			crc.reset();
+			crc.update(record);
+			out.writeInt(record.length);
+			out.writeInt((int) crc.getValue());
+			out.write(record);
+		}
+		out.flush();
+
+		GriefPreventionLight.instance.durableFiles.write(region.file, bytes.toByteArray());
+	}
+
+	//also used by the journal store for its records
+	static byte[] encodeClaim(Claim claim) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeLong(claim.id);
+		out.writeLong(claim.parent != null ? claim.parent.id : -1L);
+
+		out.writeInt(claim.lesserBoundaryCorner.x);
+		out.writeInt(claim.lesserBoundaryCorner.z);
+		out.writeInt(claim.greaterBoundaryCorner.x);
+		out.writeInt(claim.greaterBoundaryCorner.z);
+
+		out.writeBoolean(claim.ownerID != null);
+		if(claim.ownerID != null) {
+			out.writeLong(claim.ownerID.getMostSignificantBits());
+			out.writeLong(claim.ownerID.getLeastSignificantBits());
+		}
+
+		out.writeBoolean(claim.getSubclaimRestrictions());
+		out.writeLong(claim.modifiedDate != null ? claim.modifiedDate.getTime() : System.currentTimeMillis());
+
+		ArrayList<String> builders = new ArrayList<>();
+		ArrayList<String> containers = new ArrayList<>();
+		ArrayList<String> accessors = new ArrayList<>();
+		ArrayList<String> managers = new ArrayList<>();
+		claim.getPermissions(builders, containers, accessors, managers);
+
+		writeStrings(out, builders);
+		writeStrings(out, containers);
+		writeStrings(out, accessors);
+		writeStrings(out, managers);
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	static Claim decodeClaim(byte[] record, World world, ArrayList<Long> out_parentID) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+
+		long claimID = in.readLong();
+		long parentID = in.readLong();
+
+		Coordinate lesserBoundaryCorner = new Coordinate(in.readInt(), in.readInt());
+		Coordinate greaterBoundaryCorner = new Coordinate(in.readInt(), in.readInt());
+
+		UUID ownerID = null;
+		if(in.readBoolean()) {
+			ownerID = new UUID(in.readLong(), in.readLong());
+		}
+
+		boolean inheritNothing = in.readBoolean();
+		long modifiedDate = in.readLong();
+
+		List<String> builders = readStrings(in);
+		List<String> containers = readStrings(in);
+		List<String> accessors = readStrings(in);
+		List<String> managers = readStrings(in);
+
+		out_parentID.add(parentID);
+
+		Claim claim = new Claim(world, lesserBoundaryCorner, greaterBoundaryCorner, ownerID, builders, containers, accessors, managers, inheritNothing, claimID);
+		claim.modifiedDate = new Date(modifiedDate);
+
+		return claim;
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for(String string : strings) {
+			out.writeUTF(string);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if(count < 0) throw new IOException("Negative list length " + count);
+
+		ArrayList<String> strings = new ArrayList<>(Math.min(count, 64));
+		for(int i = 0; i < count; i++) {
+			strings.add(in.readUTF());
+		}
+
+		return strings;
+	}
+}
@@ -1,11 +1,16 @@
 package com.github.xt449.griefpreventionlight;
 
+import java.util.ArrayDeque;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
+//safe to use from several chat threads at once
+//each chatter's data is guarded by its own ChatterData, so different players never wait on each other
+//only the short check against the last message from anyone is shared
 class SpamDetector {
 	//last chat message shown and its timestamp, regardless of who sent it
+	//guarded by lastChatMessageLock
+	private final Object lastChatMessageLock = new Object();
 	private String lastChatMessage = "";
 	private long lastChatMessageTimestamp = 0;
 
@@ -18,13 +23,27 @@ class SpamDetector {
 	private ChatterData getChatterData(UUID chatterID) {
 		ChatterData data = this.dataStore.get(chatterID);
 		if(data == null) {
-			data = new ChatterData();
-			this.dataStore.put(chatterID, data);
+			data = this.dataStore.computeIfAbsent(chatterID, k -> new ChatterData());
 		}
 
 		return data;
 	}
 
+	//compares a message against the last one shown from anyone and remembers it
+	//returns how many identical messages came before this one in a row, or 0 if it isn't a repeat
+	private int checkDuplicateMessage(String message, long timestamp) {
+		synchronized(this.lastChatMessageLock) {
+			if(message.equals(this.lastChatMessage) && timestamp - this.lastChatMessageTimestamp < 2000) {
+				return ++this.duplicateMessageCount;
+			}
+
+			this.lastChatMessage = message;
+			this.lastChatMessageTimestamp = timestamp;
+			this.duplicateMessageCount = 0;
+			return 0;
+		}
+	}
+
 	SpamAnalysisResult AnalyzeMessage(UUID chatterID, String message, long timestamp) {
 		SpamAnalysisResult result = new SpamAnalysisResult();
 		result.finalMessage = message;
@@ -35,8 +54,19 @@ class SpamDetector {
 			result.finalMessage = message;
 		}
 
-		boolean spam = false;
+		int duplicateMessageCount = this.checkDuplicateMessage(message, timestamp);
+
 		ChatterData chatterData = this.getChatterData(chatterID);
+		synchronized(chatterData) {
+			this.analyzeMessage(chatterData, message, timestamp, duplicateMessageCount, result);
+		}
+
+		return result;
+	}
+
+	//the part of the analysis which reads and updates one chatter's data, called with that data locked
+	private void analyzeMessage(ChatterData chatterData, String message, long timestamp, int duplicateMessageCount, SpamAnalysisResult result) {
+		boolean spam = false;
 
 		//mute if total volume of text from this player is too high
 		if(message.length() > 50 && chatterData.getTotalRecentLength(timestamp) > 200) {
@@ -46,14 +76,10 @@ class SpamDetector {
 		}
 
 		//always mute an exact match to the last chat message
-		if(result.finalMessage.equals(this.lastChatMessage) && timestamp - this.lastChatMessageTimestamp < 2000) {
-			chatterData.spamLevel += ++this.duplicateMessageCount;
+		if(duplicateMessageCount > 0) {
+			chatterData.spamLevel += duplicateMessageCount;
 			spam = true;
 			result.muteReason = "repeat message";
-		} else {
-			this.lastChatMessage = message;
-			this.lastChatMessageTimestamp = timestamp;
-			this.duplicateMessageCount = 0;
 		}
 
 		//check message content and timing
@@ -134,8 +160,6 @@ class SpamDetector {
 		}
 
 		chatterData.AddMessage(message, timestamp);
-
-		return result;
 	}
 
 	//if two strings are 75% identical, they're too close to follow each other in the chat
@@ -189,6 +213,7 @@ class SpamAnalysisResult {
 	String muteReason;
 }
 
+//only read or changed while holding the lock on the instance itself
 class ChatterData {
 	public String lastMessage = "";                 //the player's last chat message, or slash command complete with parameters
 	public long lastMessageTimestamp;               //last time the player sent a chat message or used a monitored slash command
@@ -196,7 +221,7 @@ class ChatterData {
 	public boolean spamWarned = false;              //whether the player has received a warning recently
 
 	//all recent message lengths and their total
-	private final ConcurrentLinkedQueue<LengthTimestampPair> recentMessageLengths = new ConcurrentLinkedQueue<>();
+	private final ArrayDeque<LengthTimestampPair> recentMessageLengths = new ArrayDeque<>();
 	private int recentTotalLength = 0;
 
 	public void AddMessage(String message, long timestamp) {
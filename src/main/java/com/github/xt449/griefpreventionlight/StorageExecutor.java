@@ -0,0 +1,152 @@
+package com.github.xt449.griefpreventionlight;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//runs all of the background reads and writes against secondary storage
+//made of a few single threaded lanes, work for the same key (usually a player's UUID) always goes to the same lane
+//so it runs in the order it was submitted, e.g. a player's quit save always finishes before the save from his next join starts
+//lanes never turn work away or run it on the submitting thread, that would let it overtake older work for the same key
+//instead admins are warned when more than the configured queue size is waiting
+class StorageExecutor {
+	private static final long BACKLOG_WARNING_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+	private final ThreadPoolExecutor[] lanes;
+	private final int queueCapacity;
+	private volatile long shutdownTimeoutNanos = 0;
+
+	//statistics
+	private final LongAdder submittedCount = new LongAdder();
+	private final LongAdder completedCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+	private final LongAdder lateTaskCount = new LongAdder();
+	private final LongAdder totalWaitNanos = new LongAdder();
+	private final LongAdder totalRunNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong lastBacklogWarning = new AtomicLong(System.nanoTime() - BACKLOG_WARNING_INTERVAL);
+
+	StorageExecutor(int threadCount, int queueCapacity) {
+		threadCount = Math.max(1, threadCount);
+
+		this.lanes = new ThreadPoolExecutor[threadCount];
+		this.queueCapacity = Math.max(1, queueCapacity);
+		for(int i = 0; i < threadCount; i++) {
+			String threadName = "GriefPrevention Storage #" + (i + 1);
+			this.lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, threadName);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}, this::runAfterShutdown);
+		}
+	}
+
+	//only reached once onDisable has shut the lanes down
+	//the task still has to wait for whatever the lane hasn't finished yet, so it doesn't overtake it
+	private void runAfterShutdown(Runnable runnable, ThreadPoolExecutor lane) {
+		this.lateTaskCount.increment();
+		try {
+			if(!lane.awaitTermination(this.shutdownTimeoutNanos, TimeUnit.NANOSECONDS)) {
+				GriefPreventionLight.AddLogWarning("Storage still hasn't finished, running a late storage task out of order.");
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		runnable.run();
+	}
+
+	//queues a task behind any other work with the same key
+	//tasks with a null key all share the first lane
+	void execute(Object key, Runnable task) {
+		ThreadPoolExecutor lane = this.lanes[key == null ? 0 : Math.floorMod(key.hashCode(), this.lanes.length)];
+
+		this.submittedCount.increment();
+		long queuedTime = System.nanoTime();
+		lane.execute(() -> this.run(task, queuedTime));
+
+		//if the disk can't keep up, say so now and then
+		int queueDepth = this.getQueueDepth();
+		if(queueDepth > this.queueCapacity) {
+			long now = System.nanoTime();
+			long lastWarning = this.lastBacklogWarning.get();
+			if(now - lastWarning >= BACKLOG_WARNING_INTERVAL && this.lastBacklogWarning.compareAndSet(lastWarning, now)) {
+				GriefPreventionLight.AddLogWarning("Storage is falling behind, " + queueDepth + " tasks waiting, more than the " + this.queueCapacity + " expected.  " + this.getStatus());
+			}
+		}
+	}
+
+	private void run(Runnable task, long queuedTime) {
+		long startTime = System.nanoTime();
+		long waitNanos = startTime - queuedTime;
+		this.totalWaitNanos.add(waitNanos);
+		this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+		try {
+			task.run();
+		} catch(Throwable e) {
+			this.failedCount.increment();
+			GriefPreventionLight.AddLogEntry("Unexpected exception in a storage task: " + e);
+			e.printStackTrace();
+		} finally {
+			this.totalRunNanos.add(System.nanoTime() - startTime);
+			this.completedCount.increment();
+		}
+	}
+
+	//number of tasks waiting to start, across all lanes
+	int getQueueDepth() {
+		int depth = 0;
+		for(ThreadPoolExecutor lane : this.lanes) {
+			depth += lane.getQueue().size();
+		}
+
+		return depth;
+	}
+
+	//one line summary of queue depth and task latency, for the logs
+	String getStatus() {
+		long completed = this.completedCount.sum();
+		long averageWait = completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalWaitNanos.sum() / completed);
+		long averageRun = completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalRunNanos.sum() / completed);
+
+		return "Storage tasks: " + this.getQueueDepth() + " queued, " +
+				this.submittedCount.sum() + " submitted, " +
+				completed + " completed, " +
+				this.failedCount.sum() + " failed, " +
+				this.lateTaskCount.sum() + " run after shutdown.  " +
+				"Wait avg " + averageWait + "ms max " + TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos.get()) + "ms, " +
+				"run avg " + averageRun + "ms.";
+	}
+
+	//stops accepting work and waits for everything already queued to finish, in order
+	//anything submitted after this runs on the caller's thread, once its lane has finished
+	void shutdown(long timeoutSeconds) {
+		this.shutdownTimeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+		for(ThreadPoolExecutor lane : this.lanes) {
+			lane.shutdown();
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+		try {
+			for(ThreadPoolExecutor lane : this.lanes) {
+				while(!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+					if(System.nanoTime() - deadline >= 0) {
+						GriefPreventionLight.AddLogWarning("Gave up waiting for storage to finish, " + this.getQueueDepth() + " tasks were not run.");
+						return;
+					}
+
+					GriefPreventionLight.AddLogEntry("Waiting for storage to finish, " + this.getQueueDepth() + " tasks remaining...");
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			GriefPreventionLight.AddLogWarning("Interrupted while waiting for storage to finish, " + this.getQueueDepth() + " tasks may not have run.");
+			return;
+		}
+
+		GriefPreventionLight.AddLogEntry(this.getStatus(), CustomLogEntryTypes.Debug);
+	}
+}
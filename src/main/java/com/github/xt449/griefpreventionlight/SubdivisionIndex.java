@@ -0,0 +1,52 @@
+package com.github.xt449.griefpreventionlight;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//grid over the subdivisions of one top level claim, so finding the subdivision at a spot
+//doesn't mean testing every subdivision in a claim with hundreds of them
+//cells are chunk sized and list subdivisions in the same order as the claim's child list
+//an index is never changed once built, a claim just builds a new one when its children change
+class SubdivisionIndex {
+	private final LongClaimMap cellsToChildrenMap;
+
+	//how many children there were when this was built, used to notice changes made without invalidating
+	//-1 for a placeholder which hasn't been built yet
+	final int childCount;
+
+	SubdivisionIndex() {
+		this.cellsToChildrenMap = null;
+		this.childCount = -1;
+	}
+
+	SubdivisionIndex(List<Claim> children) {
+		this.cellsToChildrenMap = new LongClaimMap();
+		this.childCount = children.size();
+
+		HashMap<Long, ArrayList<Claim>> cells = new HashMap<>();
+		for(Claim child : children) {
+			int lesserCellX = child.lesserBoundaryCorner.x >> 4;
+			int lesserCellZ = child.lesserBoundaryCorner.z >> 4;
+			int greaterCellX = child.greaterBoundaryCorner.x >> 4;
+			int greaterCellZ = child.greaterBoundaryCorner.z >> 4;
+
+			for(int cellx = lesserCellX; cellx <= greaterCellX; cellx++) {
+				for(int cellz = lesserCellZ; cellz <= greaterCellZ; cellz++) {
+					cells.computeIfAbsent(DataStore.getChunkHash(cellx, cellz), k -> new ArrayList<>()).add(child);
+				}
+			}
+		}
+
+		for(Map.Entry<Long, ArrayList<Claim>> cell : cells.entrySet()) {
+			this.cellsToChildrenMap.put(cell.getKey(), cell.getValue().toArray(new Claim[0]));
+		}
+	}
+
+	//gets the subdivisions which might contain a block position, or null if there aren't any
+	//the returned array must not be modified
+	Claim[] get(int x, int z) {
+		return this.cellsToChildrenMap.get(DataStore.getChunkHash(x >> 4, z >> 4));
+	}
+}
@@ -291,7 +291,15 @@ public class Visualization {
 	public static Visualization fromClaims(Iterable<Claim> claims, VisualizationType type, Location locality) {
 		Visualization visualization = new Visualization();
 
+		//claims entirely outside visualization range wouldn't add any elements
+		int x = locality.getBlockX();
+		int z = locality.getBlockZ();
+		Coordinate lesser = new Coordinate(x - 75, z - 75);
+		Coordinate greater = new Coordinate(x + 75, z + 75);
+
 		for(Claim claim : claims) {
+			if(!claim.overlaps(lesser, greater)) continue;
+
 			visualization.addClaimElements(claim, type, locality);
 		}
 
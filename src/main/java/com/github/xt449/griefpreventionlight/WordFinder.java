@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+//safe to share between threads, the pattern never changes after construction and every search gets its own matcher
 class WordFinder {
 	private Pattern pattern;
 